@@ -7,6 +7,7 @@ plugins {
     `maven-publish`
     application
     eclipse
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 repositories {
@@ -18,7 +19,6 @@ repositories {
 }
 
 dependencies {
-    implementation(libs.org.locationtech.jts.jts.core)
     implementation("com.miglayout:miglayout-swing:5.3")
     implementation("org.json:json:20231013")
     implementation("org.eclipse.jgit:org.eclipse.jgit:6.8.0.202310180740-r")
@@ -46,7 +46,7 @@ sourceSets {
     main {
         java {
             srcDirs("src")
-            exclude("test/**")
+            exclude("test/**", "jmh/**")
         }
     }
     test {
@@ -56,4 +56,13 @@ sourceSets {
 
 tasks.test {
     useJUnitPlatform()
+}
+
+// Benchmarks live in src/jmh/java (the plugin's default source set).
+// ./gradlew jmh reports ops/s plus a pixels/s counter per benchmark, and the
+// allocation rate (gc.alloc.rate.norm) from the GC profiler.
+jmh {
+    jmhVersion.set("1.37")
+    profilers.add("gc")
+    resultFormat.set("JSON")
 }
\ No newline at end of file
@@ -1,48 +1,105 @@
 package com.beder.texture;
 
-import java.awt.Color;
-import java.awt.Graphics;
-import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
 
+import javax.imageio.ImageIO;
+
+/**
+ * The left and right images an operation works on. Each half is a
+ * {@link PixelBuffer}; operations should read and write the pixel arrays
+ * directly and only use {@link #getLeftImage()}/{@link #getRightImage()} where
+ * a {@code BufferedImage} is really needed (display, export, Java2D drawing).
+ * Copies are cheap: halves are shared copy-on-write between pairs.
+ */
 public class ImagePair {
-	public BufferedImage left, right;
-	
-	private ImagePair() {
-		
-	} 
+	private static final int BLACK = 0xFF000000;
+
+	private PixelBuffer left, right;
 
 	public ImagePair(int res) {
-	    left = new BufferedImage(res, res, BufferedImage.TYPE_INT_ARGB);
-	    right = new BufferedImage(res, res, BufferedImage.TYPE_INT_ARGB);
-	    Graphics2D g = left.createGraphics();
-	    g.setColor(Color.BLACK);
-	    g.fillRect(0, 0, left.getWidth(), left.getHeight());
-	    g.dispose();
-	    g = right.createGraphics();
-	    g.setColor(Color.BLACK);
-	    g.fillRect(0, 0, right.getWidth(), right.getHeight());
-	    g.dispose();
-	}
-	
+	    left = PixelBuffer.filled(res, res, BLACK);
+	    right = PixelBuffer.filled(res, res, BLACK);
+	}
+
+	public ImagePair(PixelBuffer left, PixelBuffer right) {
+		this.left = left;
+		this.right = right;
+	}
+
+	/**
+	 * Copy constructor. The halves are copy-on-write, so no pixels are copied
+	 * until one side edits them.
+	 */
 	public ImagePair(ImagePair old) {
-		left = copyImage(old.left);
-		right = copyImage(old.right);
+		left = old.left.share();
+		right = old.right.share();
+	}
+
+	/**
+	 * @return the width (and height) of the pair in pixels
+	 */
+	public int getRes() {
+		return left.getWidth();
+	}
+
+	public PixelBuffer getLeft() {
+		return left;
+	}
+
+	public PixelBuffer getRight() {
+		return right;
+	}
+
+	public void setLeft(PixelBuffer left) {
+		this.left = left;
 	}
-	
+
+	public void setRight(PixelBuffer right) {
+		this.right = right;
+	}
+
+	/**
+	 * @return the left half as an image sharing its pixels
+	 */
+	public BufferedImage getLeftImage() {
+		return left.toImage();
+	}
+
+	/**
+	 * @return the right half as an image sharing its pixels
+	 */
+	public BufferedImage getRightImage() {
+		return right.toImage();
+	}
+
+	/**
+	 * Writes both halves as {@code <name>_left.png} and {@code <name>_right.png}
+	 * next to the given base file; any extension on the base name is dropped.
+	 */
+	public void writePngs(File base) throws IOException {
+		String name = base.getName().replaceFirst("(\\.[^.]+)?$", "");
+		ImageIO.write(getLeftImage(), "png", new File(base.getParentFile(), name + "_left.png"));
+		ImageIO.write(getRightImage(), "png", new File(base.getParentFile(), name + "_right.png"));
+	}
+
+	/**
+	 * @return a hash of both halves' content, see {@link PixelBuffer#contentHash()}
+	 */
+	public long contentHash() {
+		return left.contentHash() * 31 + right.contentHash();
+	}
+
+	/**
+	 * @return the number of bytes held by both halves
+	 */
+	public long getByteSize() {
+		return left.getByteSize() + right.getByteSize();
+	}
+
 	public ImagePair copy() {
-		ImagePair pair = new ImagePair();
-		pair.left = copyImage(left);
-		pair.right = copyImage(right);
-		return pair;
-	}
-	
-    public static BufferedImage copyImage(BufferedImage source) {
-        BufferedImage copy = new BufferedImage(source.getWidth(), source.getHeight(), source.getType());
-        Graphics g = copy.getGraphics();
-        g.drawImage(source, 0, 0, null);
-        g.dispose();
-        return copy;
-    }
+		return new ImagePair(this);
+	}
 
 }
@@ -0,0 +1,140 @@
+package com.beder.texture;
+
+import java.awt.AlphaComposite;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.GraphicsConfiguration;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.swing.JComponent;
+import javax.swing.SwingUtilities;
+
+/**
+ * Shows a {@link PixelBuffer} scaled to a fixed size. Scaling is a box filter
+ * over the primitive pixels and runs on a background thread; the result is
+ * remembered per buffer, so showing a layer again is immediate. The scaled
+ * image is painted through a {@code VolatileImage} so repaints stay on the
+ * graphics card.
+ *
+ * Buffers shown here are assumed not to be edited afterwards, as is the case
+ * for layer outputs.
+ */
+public class ImageView extends JComponent {
+    private static final ExecutorService scaler = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "texture-display");
+        t.setDaemon(true);
+        return t;
+    });
+    /** Scaled images by source buffer, for every view; entries go when the buffer does. */
+    private static final Map<PixelBuffer, BufferedImage> scaled =
+            Collections.synchronizedMap(new WeakHashMap<PixelBuffer, BufferedImage>());
+
+    private final int size;
+    private PixelBuffer source;
+    private BufferedImage image;
+    private VolatileImage volatileImage;
+    private boolean volatileStale;
+
+    public ImageView(int size) {
+        this.size = size;
+        setPreferredSize(new Dimension(size, size));
+    }
+
+    /**
+     * Shows the given buffer. If it has not been scaled before, the previous
+     * image stays up until the scaled one is ready. Must be called on the
+     * Event Dispatch Thread.
+     */
+    public void setBuffer(PixelBuffer buffer) {
+        source = buffer;
+        BufferedImage img = scaled.get(buffer);
+        if (img != null) {
+            show(img);
+            return;
+        }
+        scaler.execute(() -> {
+            BufferedImage result = scale(buffer, size);
+            scaled.put(buffer, result);
+            SwingUtilities.invokeLater(() -> {
+                if (source == buffer) show(result);
+            });
+        });
+    }
+
+    private void show(BufferedImage img) {
+        image = img;
+        volatileStale = true;
+        repaint();
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        if (image == null) return;
+        GraphicsConfiguration gc = getGraphicsConfiguration();
+        if (gc == null) {
+            g.drawImage(image, 0, 0, null);
+            return;
+        }
+        do {
+            if (volatileImage == null || volatileImage.validate(gc) == VolatileImage.IMAGE_INCOMPATIBLE) {
+                volatileImage = gc.createCompatibleVolatileImage(size, size, VolatileImage.TRANSLUCENT);
+                volatileStale = true;
+            }
+            if (volatileStale || volatileImage.contentsLost()) {
+                Graphics2D vg = volatileImage.createGraphics();
+                vg.setComposite(AlphaComposite.Src);
+                vg.drawImage(image, 0, 0, null);
+                vg.dispose();
+                volatileStale = false;
+            }
+            g.drawImage(volatileImage, 0, 0, null);
+        } while (volatileImage.contentsLost());
+    }
+
+    /**
+     * @return {@code buffer} scaled to {@code size x size} with a box filter
+     */
+    static BufferedImage scale(PixelBuffer buffer, int size) {
+        int[] px = downsample(buffer.getPixels(), buffer.getWidth(), buffer.getHeight(), size, size);
+        return new PixelBuffer(size, size, px).toImage();
+    }
+
+    /**
+     * Averages each block of source pixels that maps onto a destination pixel,
+     * per ARGB channel. When enlarging, the nearest source pixel is used.
+     */
+    static int[] downsample(int[] src, int sw, int sh, int dw, int dh) {
+        int[] dst = new int[dw * dh];
+        TileScheduler.forEachTile(dw, dh, (x0, y0, x1, y1) -> {
+            for (int y = y0; y < y1; y++) {
+                int sy0 = (int) ((long) y * sh / dh);
+                int sy1 = Math.max(sy0 + 1, (int) ((long) (y + 1) * sh / dh));
+                for (int x = x0; x < x1; x++) {
+                    int sx0 = (int) ((long) x * sw / dw);
+                    int sx1 = Math.max(sx0 + 1, (int) ((long) (x + 1) * sw / dw));
+                    long a = 0, r = 0, g = 0, b = 0;
+                    for (int sy = sy0; sy < sy1; sy++) {
+                        int row = sy * sw;
+                        for (int sx = sx0; sx < sx1; sx++) {
+                            int c = src[row + sx];
+                            a += c >>> 24;
+                            r += (c >> 16) & 0xFF;
+                            g += (c >> 8) & 0xFF;
+                            b += c & 0xFF;
+                        }
+                    }
+                    int n = (sy1 - sy0) * (sx1 - sx0);
+                    dst[y * dw + x] = (int) (a / n) << 24 | (int) (r / n) << 16 | (int) (g / n) << 8 | (int) (b / n);
+                }
+            }
+        });
+        return dst;
+    }
+}
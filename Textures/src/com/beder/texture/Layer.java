@@ -1,26 +1,31 @@
 package com.beder.texture;
 
 import java.awt.FlowLayout;
-import java.awt.event.MouseListener;
+import java.io.IOException;
 
-import javax.security.auth.Refreshable;
 import javax.swing.BorderFactory;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 
 public class Layer {
 	private ImagePair input;
-	private ImagePair output;
+	private volatile ImagePair output;
+	/** Compressed output while the layer is inactive, see {@link SnapshotBudget}. */
+	private PackedPair packed;
 	private Operation op;
 	private Parameters param;
-	private JPanel tilePanel;
+	/** Parameters and input hash of the last apply, used to skip unchanged layers. */
+	private Parameters appliedParam;
+	private long inputHash, outputHash;
+	private boolean dirty = true;
+	/** Set when {@link SnapshotBudget} dropped the output to save memory. */
+	private boolean evicted;
+	/** Set by {@link #restore}: the stored output is checked against its hash when first unpacked. */
+	private boolean unverified;
 	
 	public Layer(Operation op) {
 		this.op = op;
-		
-		tilePanel = new JPanel(new FlowLayout());
 		param = new Parameters();
-		tilePanel.setBorder(BorderFactory.createTitledBorder(op.getTitle()));
 	}
 
 	public Layer(Operation op, ImagePair input) {
@@ -28,12 +33,222 @@ public class Layer {
 		this.input = input;
 	}
 	
+	/**
+	 * Runs the operation on a copy of {@code input}, or takes the result from
+	 * {@link LayerCache}. If the render is cancelled the layer keeps its
+	 * previous state.
+	 */
 	public ImagePair apply(ImagePair input) {
-	    this.input = input.copy();
-	    ImagePair out = op.executeOperation(this.input, param);
-	    output = out.copy();
+	    RenderMetrics.Probe probe = RenderMetrics.start();
+	    ImagePair in = input.copy();
+	    long hash = in.contentHash();
+	    String key = cacheKey(param, in.getRes(), hash);
+	    ImagePair out = cached(key);
+	    RenderMetrics.Usage executed = null;
+	    if (out == null) {
+	        RenderMetrics.Probe exec = RenderMetrics.start();
+	        out = execute(input, param, key);
+	        executed = exec.stop();
+	    }
+	    // the input is the previous layer's output; only its hash is kept
+	    this.input = null;
+	    inputHash = hash;
+	    outputHash = out.contentHash();
+	    synchronized (this) {
+	        output = out.copy();
+	        packed = null;
+	        evicted = false;
+	        unverified = false;
+	    }
+	    appliedParam = new Parameters();
+	    appliedParam.putAll(param);
+	    dirty = false;
+	    SnapshotBudget.getInstance().stored(this, out.getByteSize());
+	    RenderMetrics.getInstance().record(this, probe.stop(), executed);
 	    return out;
-	}	
+	}
+
+	/**
+	 * Runs the operation on {@code input} at a reduced resolution without
+	 * changing the layer, e.g. for a quick preview. Parameters given in pixels
+	 * are scaled by {@code factor}, see {@link Operation#scaleParameters}.
+	 */
+	public ImagePair preview(ImagePair input, double factor) {
+	    Parameters par = op.scaleParameters(param, factor);
+	    String key = cacheKey(par, input.getRes(), input.contentHash());
+	    ImagePair out = cached(key);
+	    return out != null ? out : execute(input, par, key);
+	}
+
+	private String cacheKey(Parameters par, int res, long hash) {
+	    LayerCache cache = LayerCache.getInstance();
+	    return cache.isEnabled() ? LayerCache.key(op, par, res, hash) : null;
+	}
+
+	private static ImagePair cached(String key) {
+	    return key == null ? null : LayerCache.getInstance().get(key);
+	}
+
+	private ImagePair execute(ImagePair input, Parameters par, String key) {
+	    ImagePair out = op.executeOperation(input.copy(), par);
+	    if (key != null) {
+	        LayerCache.getInstance().put(key, out);
+	    }
+	    return out;
+	}
+
+	/**
+	 * @return true if applying to {@code input} could give a different output
+	 *         than the one held: the layer was never applied, its parameters
+	 *         changed, or the input content differs from the last apply
+	 */
+	public boolean needsApply(ImagePair input) {
+	    return appliedParam == null || !param.equals(appliedParam) || input.contentHash() != inputHash;
+	}
+
+	/**
+	 * Sets the layer up as applied with a stored output, e.g. one read from a
+	 * {@link ProjectFile}, without running the operation. The current
+	 * parameters are taken as the ones the output was made with. The output
+	 * is only decompressed when it is first needed; if it does not match
+	 * {@code outputHash} then, it is dropped and recomputed like an evicted one.
+	 */
+	synchronized void restore(PackedPair stored, long inputHash, long outputHash) {
+	    this.input = null;
+	    this.inputHash = inputHash;
+	    this.outputHash = outputHash;
+	    output = null;
+	    packed = stored;
+	    evicted = false;
+	    unverified = true;
+	    appliedParam = new Parameters();
+	    appliedParam.putAll(param);
+	    dirty = false;
+	}
+
+	/**
+	 * @return true if the layer has been applied (or restored) and its
+	 *         parameters have not changed since
+	 */
+	public boolean isApplied() {
+	    return !paramsChanged();
+	}
+
+	/**
+	 * @return the compressed output if the layer currently holds one, else {@code null}
+	 */
+	synchronized PackedPair getPackedOutput() {
+	    return packed;
+	}
+
+	/**
+	 * @return the content hash of the input of the last apply
+	 */
+	public long getInputHash() {
+	    return inputHash;
+	}
+
+	/**
+	 * @return the content hash of the output of the last apply
+	 */
+	public long getOutputHash() {
+	    return outputHash;
+	}
+
+	/**
+	 * @return true if the parameters differ from those of the last apply, or
+	 *         the layer has never been applied
+	 */
+	public boolean paramsChanged() {
+	    return appliedParam == null || !param.equals(appliedParam);
+	}
+
+	/**
+	 * @return the uncompressed output if one is held, without unpacking or
+	 *         counting as a use
+	 */
+	ImagePair getHeldOutput() {
+	    return output;
+	}
+
+	/**
+	 * Replaces the output by a compressed copy, if it is still
+	 * {@code expected}; {@link #getOutput()} unpacks it again. The
+	 * compression runs without holding the layer's lock.
+	 * @return the compressed copy, or {@code null} if the output has changed
+	 *         or was dropped meanwhile
+	 */
+	PackedPair pack(ImagePair expected) {
+	    PackedPair p = PackedPair.pack(expected);
+	    synchronized (this) {
+	        if (output != expected) return null;
+	        packed = p;
+	        output = null;
+	    }
+	    return p;
+	}
+
+	/**
+	 * Moves the compressed output to a memory-mapped temporary file, if it is
+	 * still {@code expected}.
+	 * @return false if the layer holds a different output by now
+	 */
+	synchronized boolean spill(PackedPair expected) throws IOException {
+	    if (packed != expected) return false;
+	    packed.spill();
+	    return true;
+	}
+
+	/**
+	 * Drops the output to free memory. It can be recomputed from the layer
+	 * before it with {@link LayerStack#getOutput(int)}.
+	 */
+	synchronized void evict() {
+	    if (output != null || packed != null) {
+	        output = null;
+	        packed = null;
+	        evicted = true;
+	    }
+	}
+
+	/**
+	 * Like {@link #evict()}, but only if the output is still the compressed
+	 * {@code expected}.
+	 */
+	synchronized void evict(PackedPair expected) {
+	    if (packed == expected && output == null) {
+	        evict();
+	    }
+	}
+
+	/**
+	 * @return true if the output is currently held compressed
+	 */
+	public synchronized boolean isPacked() {
+	    return packed != null;
+	}
+
+	/**
+	 * @return true if the layer was applied but its output has been evicted
+	 */
+	public boolean isEvicted() {
+	    return evicted;
+	}
+
+	/**
+	 * Flags this layer for checking on the next {@link LayerStack#recompute()}.
+	 */
+	public void markDirty() {
+	    dirty = true;
+	}
+
+	public boolean isDirty() {
+	    return dirty;
+	}
+
+	void clearDirty() {
+	    dirty = false;
+	}
 	
 	public JPanel getTilePanel() {
 	    JPanel rebuiltPanel = new JPanel(new FlowLayout());
@@ -47,11 +262,50 @@ public class Layer {
 	    return rebuiltPanel;
 	}
 
+	/**
+	 * @return the input given at construction, until the layer is first applied
+	 */
 	public ImagePair getInput() {
 		return input;
 	}
 
+	/**
+	 * @return the output of the last apply, unpacked if it was compressed, or
+	 *         {@code null} if the layer has not been applied or its output was
+	 *         evicted or turned out to be damaged
+	 */
 	public ImagePair getOutput() {
+		ImagePair out = output;
+		if (out != null) {
+			SnapshotBudget.getInstance().touched(this);
+			return out;
+		}
+		out = unpack();
+		if (out != null) {
+			SnapshotBudget.getInstance().stored(this, out.getByteSize());
+		}
+		return out;
+	}
+
+	private synchronized ImagePair unpack() {
+		if (output == null && packed != null) {
+			ImagePair out;
+			try {
+				out = packed.unpack();
+			} catch (IllegalStateException e) {
+				out = null;
+			}
+			if (out == null || unverified && out.contentHash() != outputHash) {
+				// damaged: drop it, so it is recomputed from the layer before
+				packed = null;
+				evicted = true;
+				unverified = false;
+				return null;
+			}
+			unverified = false;
+			output = out;
+			packed = null;
+		}
 		return output;
 	}
 
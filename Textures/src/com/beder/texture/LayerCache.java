@@ -0,0 +1,142 @@
+package com.beder.texture;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers layer outputs by content: the operation class, its canonicalized
+ * parameters, the resolution and a hash of the input pair. Toggling a
+ * parameter back to a value rendered before, or re-applying a layer whose
+ * input did not change, returns the stored output instead of recomputing.
+ *
+ * Entries are evicted least-recently-used once the stored pixels exceed the
+ * capacity (default 512 MB, or the {@code texture.cache.mb} system property).
+ * The stored pixels also count against the {@link SnapshotBudget}, which
+ * drops cache entries before it compresses any layer output: a layer output
+ * that is also cached would free nothing when compressed.
+ */
+public class LayerCache {
+    private static LayerCache instance;
+
+    private final LinkedHashMap<String, ImagePair> entries;
+    private long capacity;
+    private long size;
+    private long hits, misses;
+
+    private LayerCache() {
+        entries = new LinkedHashMap<String, ImagePair>(16, 0.75f, true);
+        capacity = Long.getLong("texture.cache.mb", 512) * 1024 * 1024;
+    }
+
+    public static synchronized LayerCache getInstance() {
+        if (instance == null) {
+            instance = new LayerCache();
+        }
+        return instance;
+    }
+
+    /**
+     * Builds the cache key for running {@code op} with {@code par} on {@code input}.
+     */
+    public static String key(Operation op, Parameters par, ImagePair input) {
+        return key(op, par, input.getRes(), input.contentHash());
+    }
+
+    /**
+     * Builds the cache key from an already computed input hash.
+     */
+    public static String key(Operation op, Parameters par, int res, long inputHash) {
+        StringBuilder sb = new StringBuilder(op.getClass().getName());
+        sb.append('|').append(op.getCacheTag()).append('|');
+        for (Map.Entry<String, Double> e : par.entrySet()) {
+            double v = e.getValue();
+            if (v == 0) v = 0; // fold -0.0 into 0.0
+            sb.append(e.getKey()).append('=').append(Double.doubleToLongBits(v)).append(';');
+        }
+        sb.append('|').append(res);
+        sb.append('|').append(Long.toHexString(inputHash));
+        return sb.toString();
+    }
+
+    /**
+     * @return a copy of the stored output, or {@code null} on a miss
+     */
+    public synchronized ImagePair get(String key) {
+        ImagePair out = entries.get(key);
+        if (out == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return out.copy();
+    }
+
+    /**
+     * Stores a copy of the given output.
+     */
+    public void put(String key, ImagePair output) {
+        synchronized (this) {
+            long bytes = output.getByteSize();
+            if (bytes > capacity) return;
+            ImagePair old = entries.put(key, output.copy());
+            if (old != null) size -= old.getByteSize();
+            size += bytes;
+            trim(capacity);
+        }
+        // outside the lock: the budget takes its own lock, then this one
+        SnapshotBudget.getInstance().cacheGrew();
+    }
+
+    private void trim(long bytes) {
+        Iterator<ImagePair> it = entries.values().iterator();
+        while (size > bytes && it.hasNext()) {
+            size -= it.next().getByteSize();
+            it.remove();
+        }
+    }
+
+    /**
+     * Drops the least recently used entries until at most {@code bytes}
+     * are stored, without changing the capacity.
+     */
+    synchronized void trimTo(long bytes) {
+        trim(bytes);
+    }
+
+    /**
+     * @return the pixel bytes currently stored
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        size = 0;
+    }
+
+    /**
+     * Sets the maximum number of pixel bytes kept; 0 disables the cache.
+     */
+    public synchronized void setCapacity(long bytes) {
+        capacity = bytes;
+        trim(capacity);
+    }
+
+    public synchronized boolean isEnabled() {
+        return capacity > 0;
+    }
+
+    public synchronized long getCapacity() {
+        return capacity;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+}
@@ -41,6 +41,9 @@ public class LayerStack {
 
         /** Clear all layers from the stack and reset the pointer. */
         public void clear() {
+                for (Layer l : stack) {
+                        SnapshotBudget.getInstance().released(l);
+                }
                 stack.clear();
                 curPtr = -1;
                 buildStackPanel();
@@ -73,7 +76,10 @@ public class LayerStack {
 			});
 			stackPanel.add(panel, "growx");
 		}
-		genius.getGUI().frame.pack();
+		TextureGUI gui = genius.getGUI();
+		if (gui != null && gui.frame != null) {
+			gui.frame.pack();
+		}
 	}
 
 	/*****
@@ -85,8 +91,148 @@ public class LayerStack {
 
 	public void add(Layer l) {
 	    stack.add(++curPtr, l);
+	    markDirty(curPtr);
 	    buildStackPanel(); // FIX: refresh panel
-	    genius.getGUI().applyImage(l.getInput()); // FIX: show image
+	    if (genius.getGUI() != null) {
+	        genius.getGUI().applyImage(l.getInput()); // FIX: show image
+	    }
+	}
+
+	/**
+	 * Replaces the stack with already built layers, e.g. from a saved stack,
+	 * without running them: they are not marked dirty, so layers without an
+	 * output are only computed when {@link #getOutput(int)} needs them. The
+	 * last layer becomes current.
+	 */
+	public void load(java.util.List<Layer> layers) {
+		clear();
+		for (Layer l : layers) {
+			l.clearDirty();
+		}
+		stack.addAll(layers);
+		curPtr = stack.size() - 1;
+		buildStackPanel();
+	}
+
+	/**
+	 * Marks the layer at {@code index} and every layer after it for checking on
+	 * the next {@link #recompute()}.
+	 */
+	public void markDirty(int index) {
+		for (int i = Math.max(index, 0); i < stack.size(); i++) {
+			stack.get(i).markDirty();
+		}
+	}
+
+	/**
+	 * Brings every dirty layer up to date, in stack order. A dirty layer is
+	 * re-applied only if its parameters changed or its input (the output of
+	 * the layer before it) differs from the one it was last applied to, so a
+	 * change that does not alter a layer's output stops propagating there.
+	 *
+	 * @return the number of layers that were re-applied
+	 * @throws java.util.concurrent.CancellationException if the bound
+	 *         {@link RenderMonitor} is cancelled; layers not yet reached stay dirty
+	 */
+	public int recompute() {
+		RenderMonitor monitor = RenderMonitor.current();
+		int applied = 0;
+		for (int i = 0; i < stack.size(); i++) {
+			Layer l = stack.get(i);
+			if (!l.isDirty()) {
+				continue;
+			}
+			monitor.checkCancelled();
+			monitor.beginStep(i, stack.size());
+			ImagePair in = i == 0 ? startInput() : getOutput(i - 1);
+			if (l.needsApply(in)) {
+				l.apply(in);
+				applied++;
+			} else {
+				l.clearDirty();
+			}
+		}
+		return applied;
+	}
+
+	/**
+	 * Renders layers {@code 0..index} from a blank pair at resolution
+	 * {@code res} without touching the layers' stored outputs. Parameters in
+	 * pixels are scaled by {@code res / fullRes}.
+	 */
+	public ImagePair renderPreview(int index, int res, int fullRes) {
+		RenderMonitor monitor = RenderMonitor.current();
+		double factor = (double) res / fullRes;
+		ImagePair img = new ImagePair(res);
+		for (int i = 0; i <= index && i < stack.size(); i++) {
+			monitor.checkCancelled();
+			img = stack.get(i).preview(img, factor);
+		}
+		return img;
+	}
+
+	/**
+	 * @return the output of the layer at {@code index}. An output that was
+	 *         evicted by {@link SnapshotBudget}, or never computed, is computed
+	 *         from the nearest earlier layer that holds an up-to-date one (often
+	 *         straight from {@link LayerCache}). Layers on the way whose
+	 *         parameters changed, or that are still dirty from an interrupted
+	 *         {@link #recompute()}, are brought up to date as well.
+	 */
+	public ImagePair getOutput(int index) {
+		int from = index;
+		ImagePair in = null;
+		while (from >= 0 && (in = currentOutput(stack.get(from))) == null) {
+			from--;
+		}
+		if (from == index) {
+			return in;
+		}
+		if (from < 0) {
+			in = startInput();
+		}
+		RenderMonitor monitor = RenderMonitor.current();
+		for (int i = from + 1; i <= index; i++) {
+			monitor.checkCancelled();
+			Layer l = stack.get(i);
+			ImagePair held = l.needsApply(in) ? null : l.getOutput();
+			if (held != null) {
+				l.clearDirty();
+				in = held;
+			} else {
+				in = l.apply(in);
+			}
+		}
+		return in;
+	}
+
+	/**
+	 * @return whether the layer at {@code index} has to be computed or
+	 *         checked before its output can be used: it was never applied, its
+	 *         parameters changed, or a layer before it did
+	 */
+	public boolean needsRender(int index) {
+		Layer l = stack.get(index);
+		return l.isDirty() || l.paramsChanged();
+	}
+
+	/**
+	 * @return the layer's output if it holds one that is known to be up to
+	 *         date, else {@code null}
+	 */
+	private static ImagePair currentOutput(Layer l) {
+		return l.isDirty() || l.paramsChanged() ? null : l.getOutput();
+	}
+
+	/**
+	 * @return the blank pair the first layer is applied to
+	 */
+	private ImagePair startInput() {
+		return new ImagePair(genius.getRes());
+	}
+
+	public int indexOf(Layer l) {
+		return stack.indexOf(l);
 	}
 
 	public Layer getCurrent() {
@@ -0,0 +1,106 @@
+package com.beder.texture;
+
+import java.awt.BorderLayout;
+import java.awt.Dimension;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.BorderFactory;
+import javax.swing.JButton;
+import javax.swing.JFileChooser;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Table of the last apply cost of every layer, from {@link RenderMetrics},
+ * shown next to the operation stack. Call {@link #refresh(List)} after a
+ * render to update it.
+ */
+public class MetricsPanel extends JPanel {
+    private static final String[] COLUMNS = {"#", "Operation", "Wall ms", "CPU ms", "Alloc MB", "Hits", "Misses"};
+
+    private final CostModel model = new CostModel();
+    private List<Layer> layers = new ArrayList<Layer>();
+
+    public MetricsPanel() {
+        super(new BorderLayout());
+        setBorder(BorderFactory.createTitledBorder("Layer Cost"));
+        JTable table = new JTable(model);
+        table.setAutoCreateRowSorter(true);
+        JScrollPane scroll = new JScrollPane(table);
+        scroll.setPreferredSize(new Dimension(360, 200));
+        add(scroll, BorderLayout.CENTER);
+
+        JButton dump = new JButton("Export JSON");
+        dump.addActionListener(e -> exportJSON());
+        add(dump, BorderLayout.SOUTH);
+    }
+
+    /**
+     * Shows the figures for the given layers, in stack order.
+     */
+    public void refresh(List<Layer> stack) {
+        layers = new ArrayList<Layer>(stack);
+        model.fireTableDataChanged();
+    }
+
+    private void exportJSON() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setSelectedFile(new File("metrics.json"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        try {
+            RenderMetrics.getInstance().writeJSON(layers, chooser.getSelectedFile());
+        } catch (IOException ex) {
+            JOptionPane.showMessageDialog(this,
+                    "Failed to save metrics: " + ex.getMessage(),
+                    "Save Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    private class CostModel extends AbstractTableModel {
+        @Override
+        public int getRowCount() {
+            return layers.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMNS[column];
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            return column == 1 ? String.class : Number.class;
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            Layer l = layers.get(row);
+            RenderMetrics.Stats s = RenderMetrics.getInstance().get(l);
+            switch (column) {
+            case 0: return row;
+            case 1: return l.getOperation().getTitle();
+            default:
+                if (s == null) return null;
+                RenderMetrics.Usage u = s.getLast();
+                switch (column) {
+                case 2: return u.wallNanos / 1e6;
+                case 3: return u.cpuNanos / 1e6;
+                case 4: return u.allocatedBytes / (1024.0 * 1024.0);
+                case 5: return s.getHits();
+                default: return s.getMisses();
+                }
+            }
+        }
+    }
+}
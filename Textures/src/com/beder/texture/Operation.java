@@ -4,6 +4,9 @@ import java.awt.BorderLayout;
 import java.awt.Component;
 import java.awt.FlowLayout;
 import java.awt.image.BufferedImage;
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.Map.Entry;
@@ -22,17 +25,44 @@ public abstract class Operation implements Comparable<Operation> {
         private Redrawable redraw;
         private JPanel controlPanel;
         private Map<String, Component> controls;
+        /** Parameter declarations in the order they were added; controls are built from these on demand. */
+        private final List<ParameterSpec> specs;
+        /** Values pushed by {@link #setUIParameters} before the controls existed. */
+        private Parameters pendingUI;
         /** Text field used when a SEED parameter is added. */
         protected JTextField seedField;
         protected enum CONTROL_TYPE {INT, DOUBLE, SLIDER, SEED, BOOLEAN};
 	
 	public Operation(Redrawable redraw){
 		this.redraw = redraw;
-		controlPanel = new JPanel();
-		controls = new TreeMap<String, Component>();
+		specs = new ArrayList<ParameterSpec>();
 	}
 	
+	/**
+	 * Declares a parameter. The Swing control for it is only created when
+	 * {@link #getConfig()} is first called, so operations can be created and
+	 * executed without a display.
+	 */
 	public void addParameter(String name, CONTROL_TYPE type, double def) {
+		specs.add(new ParameterSpec(name, type, def));
+		if (controlPanel != null) {
+			addControl(name, type, def);
+		}
+	}
+
+	private void buildControls() {
+		controlPanel = new JPanel();
+		controls = new TreeMap<String, Component>();
+		for (ParameterSpec spec : specs) {
+			addControl(spec.name, spec.type, spec.def);
+		}
+		if (pendingUI != null) {
+			setUIParameters(pendingUI);
+			pendingUI = null;
+		}
+	}
+
+	private void addControl(String name, CONTROL_TYPE type, double def) {
 		controlPanel.add(new JLabel(name));
 		switch (type) {
 		case INT:
@@ -80,6 +110,13 @@ public abstract class Operation implements Comparable<Operation> {
 	 * @return the current set of values chosen as parameters for this operation
 	 */
 	public final Parameters getUIParameters() {
+	    if (controls == null) {
+	        Parameters param = getDefaultParameters();
+	        if (pendingUI != null) {
+	            param.putAll(pendingUI);
+	        }
+	        return param;
+	    }
 	    Parameters param = new Parameters();
 	    for (Map.Entry<String,Component> entry : controls.entrySet()) {
 	        String name = entry.getKey();
@@ -101,6 +138,72 @@ public abstract class Operation implements Comparable<Operation> {
 	    }
 	    return param;
 	}
+
+	/**
+	 * @return the declared default value of every parameter
+	 */
+	public final Parameters getDefaultParameters() {
+	    Parameters param = new Parameters();
+	    for (ParameterSpec spec : specs) {
+	        param.put(spec.name, spec.def);
+	    }
+	    return param;
+	}
+
+	/**
+	 * @return the names of the declared parameters, in declaration order
+	 */
+	public final List<String> getParameterNames() {
+	    List<String> names = new ArrayList<String>();
+	    for (ParameterSpec spec : specs) {
+	        names.add(spec.name);
+	    }
+	    return names;
+	}
+
+	/**
+	 * @return the names of the parameters declared as {@code SEED}
+	 */
+	public final List<String> getSeedParameters() {
+	    List<String> names = new ArrayList<String>();
+	    for (ParameterSpec spec : specs) {
+	        if (spec.type == CONTROL_TYPE.SEED) {
+	            names.add(spec.name);
+	        }
+	    }
+	    return names;
+	}
+
+	/**
+	 * Pushes the given values into the UI controls, e.g. after loading a stack
+	 * from disk. If the controls have not been built yet the values are kept
+	 * and used when they are.
+	 */
+	public final void setUIParameters(Parameters par) {
+	    if (controls == null) {
+	        pendingUI = new Parameters();
+	        pendingUI.putAll(par);
+	        return;
+	    }
+	    for (ParameterSpec spec : specs) {
+	        if (!par.containsKey(spec.name)) continue;
+	        double v = par.get(spec.name);
+	        Component c = controls.get(spec.name);
+	        if (c instanceof JTextField) {
+	            String text;
+	            if (spec.type == CONTROL_TYPE.DOUBLE) {
+	                text = String.format("%.2f", v);
+	            } else {
+	                text = String.format("%d", (long) v);
+	            }
+	            ((JTextField) c).setText(text);
+	        } else if (c instanceof JSlider) {
+	            ((JSlider) c).setValue((int) v);
+	        } else if (c instanceof JCheckBox) {
+	            ((JCheckBox) c).setSelected(v != 0);
+	        }
+	    }
+	}
 	
 	/**
      * Applies this operation to the given input image pair and returns same pair for further operations to be applied to it.
@@ -117,27 +220,52 @@ public abstract class Operation implements Comparable<Operation> {
      * Applies this operation to the given input image and returns a new image.
      */
 	public final JPanel getConfig() {
+		if (controlPanel == null) {
+			buildControls();
+		}
 		return controlPanel;
 	}
 
 	
 	public abstract String getTitle();
+
+	/**
+	 * Adapts parameters given in pixels (feature sizes, radii) for rendering
+	 * at {@code factor} times the resolution they were chosen for, so a
+	 * low-resolution preview shows the same pattern. The default returns
+	 * {@code par} unchanged.
+	 */
+	public Parameters scaleParameters(Parameters par, double factor) {
+		return par;
+	}
+
+	/**
+	 * @return a copy of {@code par} with the named values multiplied by {@code factor}
+	 */
+	protected static Parameters scale(Parameters par, double factor, String... names) {
+		Parameters scaled = new Parameters();
+		scaled.putAll(par);
+		for (String name : names) {
+			if (scaled.containsKey(name)) {
+				scaled.put(name, scaled.get(name) * factor);
+			}
+		}
+		return scaled;
+	}
+
+	/**
+	 * Identifies any state outside the parameters and the input pair that
+	 * changes the result, so {@link LayerCache} does not return stale output.
+	 * Operations that depend only on their parameters and input return "".
+	 */
+	public String getCacheTag() {
+		return "";
+	}
     
     /**
      * Called by parent GUI to show Swing controls for configuration parameters for that specific operation
      */
 
-    /**
-     * Applies this operation to the given input image and returns a new image.
-     */
-    public BufferedImage copyOf(BufferedImage src) {
-        BufferedImage copy = new BufferedImage(src.getWidth(), src.getHeight(), src.getType());
-        java.awt.Graphics g = copy.getGraphics();
-        g.drawImage(src, 0, 0, null);
-        g.dispose();
-        return copy;
-    }
-
 	@Override
 	public int compareTo(Operation o) {
 		int hash1 = System.identityHashCode(this);
@@ -149,6 +277,16 @@ public abstract class Operation implements Comparable<Operation> {
                 return redraw;
         }
 
+        /**
+         * Instantiates an operation by class name through its {@code (Redrawable)}
+         * constructor. A {@code null} redraw target is fine for headless rendering.
+         */
+        public static Operation create(String className, Redrawable redraw) throws ReflectiveOperationException {
+                Class<?> c = Class.forName(className);
+                Constructor<?> cons = c.getConstructor(Redrawable.class);
+                return (Operation) cons.newInstance(redraw);
+        }
+
         /**
          * Returns the text field created when a SEED parameter was added.
          * May be {@code null} if no such parameter exists.
@@ -157,5 +295,14 @@ public abstract class Operation implements Comparable<Operation> {
                 return seedField;
         }
 
-
+        private static class ParameterSpec {
+                final String name;
+                final CONTROL_TYPE type;
+                final double def;
+                ParameterSpec(String name, CONTROL_TYPE type, double def) {
+                        this.name = name;
+                        this.type = type;
+                        this.def = def;
+                }
+        }
 }
@@ -0,0 +1,314 @@
+package com.beder.texture;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A losslessly compressed {@link ImagePair}, used for layer outputs that
+ * have not been looked at for a while (see {@link SnapshotBudget}).
+ *
+ * Each half is stored in its primary representation. The samples are split
+ * into byte planes (A, R, G, B for pixels, or the four bytes of each float),
+ * every plane is delta coded along the row, and the result is deflated at
+ * {@code BEST_SPEED}. Flat and smooth images, and the gray pixels with equal
+ * channels that most operations produce, shrink to a small fraction of their
+ * size. Unpacking gives back the same content and the same
+ * {@link PixelBuffer#contentHash()}.
+ *
+ * A packed pair can be moved out of the heap with {@link #spill()}, which
+ * writes it to a temporary file and maps that file, and can be stored in and
+ * read back from a {@link ProjectFile}.
+ */
+public class PackedPair {
+    private final Half left, right;
+
+    private PackedPair(Half left, Half right) {
+        this.left = left;
+        this.right = right;
+    }
+
+    public static PackedPair pack(ImagePair pair) {
+        return new PackedPair(Half.pack(pair.getLeft()), Half.pack(pair.getRight()));
+    }
+
+    public ImagePair unpack() {
+        return new ImagePair(left.unpack(), right.unpack());
+    }
+
+    /**
+     * @return the bytes still held on the heap
+     */
+    public long getByteSize() {
+        return left.heapBytes() + right.heapBytes();
+    }
+
+    /**
+     * @return the size of the compressed data, on the heap or on disk
+     */
+    public long getPackedSize() {
+        return left.length + right.length;
+    }
+
+    /**
+     * Moves the compressed data into a memory-mapped temporary file.
+     */
+    public void spill() throws IOException {
+        if (left.data == null && right.data == null) return;
+        File file = File.createTempFile("texture-layer", ".snap");
+        file.deleteOnExit();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+             FileChannel ch = raf.getChannel()) {
+            ByteBuffer buf = ByteBuffer.allocate(left.length + right.length);
+            buf.put(left.data, 0, left.length).put(right.data, 0, right.length);
+            buf.flip();
+            while (buf.hasRemaining()) {
+                ch.write(buf);
+            }
+            MappedByteBuffer map = ch.map(FileChannel.MapMode.READ_ONLY, 0, left.length + right.length);
+            left.mapped(map, 0);
+            right.mapped(map, left.length);
+        }
+        // the mapping stays valid after the channel is closed; where the
+        // platform allows it the file goes now, otherwise on exit
+        file.delete();
+    }
+
+    public boolean isSpilled() {
+        return left.data == null;
+    }
+
+    /**
+     * Writes both halves: per half the kind, width, height and length of the
+     * compressed data, followed by the data.
+     */
+    public void writeTo(DataOutputStream out) throws IOException {
+        left.writeTo(out);
+        right.writeTo(out);
+    }
+
+    /**
+     * Reads a pair written by {@link #writeTo} from {@code buf}'s position
+     * without copying: the halves refer to the buffer (typically a mapped
+     * file) and are only decompressed by {@link #unpack()}. The position is
+     * advanced past the pair.
+     */
+    public static PackedPair read(ByteBuffer buf) {
+        Half l = Half.read(buf);
+        Half r = Half.read(buf);
+        return new PackedPair(l, r);
+    }
+
+    private static final class Half {
+        final int kind, width, height, length;
+        byte[] data;
+        ByteBuffer map;
+        int offset;
+
+        Half(int kind, int width, int height, byte[] data, int length) {
+            this.kind = kind;
+            this.width = width;
+            this.height = height;
+            this.data = data;
+            this.length = length;
+        }
+
+        static Half pack(PixelBuffer b) {
+            int kind = b.primaryKind();
+            int w = b.getWidth();
+            byte[] raw;
+            if (kind == PixelBuffer.GRAY_BYTES) {
+                raw = deltaBytes(b.getGrayBytes(), w);
+            } else if (kind == PixelBuffer.GRAY) {
+                float[] g = b.getGray();
+                int[] bits = new int[g.length];
+                for (int i = 0; i < g.length; i++) {
+                    bits[i] = Float.floatToRawIntBits(g[i]);
+                }
+                raw = planes(bits, w);
+            } else {
+                raw = planes(b.getPixels(), w);
+            }
+            byte[] packed = deflate(raw);
+            return new Half(kind, w, b.getHeight(), packed, packed.length);
+        }
+
+        PixelBuffer unpack() {
+            byte[] src = data;
+            if (src == null) {
+                src = new byte[length];
+                ByteBuffer view = map.duplicate();
+                view.position(offset);
+                view.get(src);
+            }
+            int n = width * height;
+            if (kind == PixelBuffer.GRAY_BYTES) {
+                byte[] g = inflate(src, n);
+                undeltaBytes(g, width);
+                return PixelBuffer.ofGray(width, height, g);
+            }
+            int[] v = unplanes(inflate(src, 4 * n), n, width);
+            if (kind == PixelBuffer.GRAY) {
+                float[] g = new float[n];
+                for (int i = 0; i < n; i++) {
+                    g[i] = Float.intBitsToFloat(v[i]);
+                }
+                return PixelBuffer.ofGray(width, height, g);
+            }
+            return new PixelBuffer(width, height, v);
+        }
+
+        static Half read(ByteBuffer buf) {
+            int kind = buf.getInt();
+            int w = buf.getInt();
+            int h = buf.getInt();
+            int length = buf.getInt();
+            if (kind < PixelBuffer.ARGB || kind > PixelBuffer.GRAY_BYTES || w <= 0 || h <= 0
+                    || length < 0 || length > buf.remaining()) {
+                throw new IllegalStateException("Corrupt layer snapshot");
+            }
+            Half half = new Half(kind, w, h, null, length);
+            half.mapped(buf, buf.position());
+            buf.position(buf.position() + length);
+            return half;
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            out.writeInt(kind);
+            out.writeInt(width);
+            out.writeInt(height);
+            out.writeInt(length);
+            if (data != null) {
+                out.write(data, 0, length);
+            } else {
+                byte[] chunk = new byte[Math.min(length, 64 * 1024)];
+                ByteBuffer view = map.duplicate();
+                view.position(offset);
+                for (int left = length; left > 0; ) {
+                    int k = Math.min(left, chunk.length);
+                    view.get(chunk, 0, k);
+                    out.write(chunk, 0, k);
+                    left -= k;
+                }
+            }
+        }
+
+        void mapped(ByteBuffer map, int offset) {
+            this.map = map;
+            this.offset = offset;
+            data = null;
+        }
+
+        long heapBytes() {
+            return data == null ? 0 : data.length;
+        }
+    }
+
+    /**
+     * Splits 32-bit samples into four byte planes, most significant first,
+     * each delta coded along the row.
+     */
+    static byte[] planes(int[] v, int width) {
+        int n = v.length;
+        byte[] out = new byte[4 * n];
+        for (int p = 0; p < 4; p++) {
+            int shift = 24 - 8 * p;
+            int base = p * n;
+            for (int row = 0; row < n; row += width) {
+                int prev = 0;
+                for (int i = row; i < row + width; i++) {
+                    int cur = v[i] >>> shift;
+                    out[base + i] = (byte) (cur - prev);
+                    prev = cur;
+                }
+            }
+        }
+        return out;
+    }
+
+    static int[] unplanes(byte[] in, int n, int width) {
+        int[] v = new int[n];
+        for (int p = 0; p < 4; p++) {
+            int shift = 24 - 8 * p;
+            int base = p * n;
+            for (int row = 0; row < n; row += width) {
+                int acc = 0;
+                for (int i = row; i < row + width; i++) {
+                    acc = (acc + in[base + i]) & 0xFF;
+                    v[i] |= acc << shift;
+                }
+            }
+        }
+        return v;
+    }
+
+    private static byte[] deltaBytes(byte[] g, int width) {
+        byte[] out = new byte[g.length];
+        for (int row = 0; row < g.length; row += width) {
+            byte prev = 0;
+            for (int i = row; i < row + width; i++) {
+                out[i] = (byte) (g[i] - prev);
+                prev = g[i];
+            }
+        }
+        return out;
+    }
+
+    private static void undeltaBytes(byte[] g, int width) {
+        for (int row = 0; row < g.length; row += width) {
+            for (int i = row + 1; i < row + width; i++) {
+                g[i] += g[i - 1];
+            }
+        }
+    }
+
+    private static byte[] deflate(byte[] raw) {
+        Deflater d = new Deflater(Deflater.BEST_SPEED);
+        try {
+            d.setInput(raw);
+            d.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 4 + 64);
+            byte[] chunk = new byte[64 * 1024];
+            while (!d.finished()) {
+                int k = d.deflate(chunk);
+                out.write(chunk, 0, k);
+            }
+            return out.toByteArray();
+        } finally {
+            d.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] packed, int rawLength) {
+        Inflater inf = new Inflater();
+        try {
+            inf.setInput(packed);
+            byte[] raw = new byte[rawLength];
+            int off = 0;
+            while (off < rawLength && !inf.finished()) {
+                int n = inf.inflate(raw, off, rawLength - off);
+                if (n == 0 && (inf.needsInput() || inf.needsDictionary())) {
+                    // truncated or damaged stream: no more output can come
+                    throw new IllegalStateException("Corrupt layer snapshot");
+                }
+                off += n;
+            }
+            if (off != rawLength) {
+                throw new IllegalStateException("Corrupt layer snapshot");
+            }
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt layer snapshot", e);
+        } finally {
+            inf.end();
+        }
+    }
+}
@@ -0,0 +1,332 @@
+package com.beder.texture;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.util.Arrays;
+
+/**
+ * One half of an {@link ImagePair}: a block of pixels that operations read and
+ * write as primitive arrays rather than through {@code BufferedImage.getRGB/setRGB}.
+ *
+ * A buffer holds packed ARGB pixels, a single-channel {@code float} plane
+ * (0..1) or a single-channel {@code byte} plane (0..255), and converts between
+ * them only when a different representation is asked for. Grayscale generators
+ * can therefore hand over a plane without ever packing it into ARGB, and a
+ * {@code BufferedImage} is only created for display and export.
+ *
+ * Arrays returned by the {@code get} methods must be treated as read-only;
+ * use {@link #editPixels()} to write. Buffers are copy-on-write:
+ * {@link #share()} hands out a second buffer over the same arrays, and the
+ * pixels are only physically copied by whichever side edits them first.
+ */
+public class PixelBuffer {
+    private static final DirectColorModel ARGB_MODEL =
+            new DirectColorModel(32, 0x00FF0000, 0x0000FF00, 0x000000FF, 0xFF000000);
+
+    static final int ARGB = 0, GRAY = 1, GRAY_BYTES = 2;
+
+    private final int width, height;
+    /** Which array the content originated in; the others are derived caches. */
+    private int primary;
+    private int[] argb;
+    private float[] gray;
+    private byte[] grayBytes;
+    private BufferedImage image;
+    /** Set when the arrays may be referenced by another buffer. */
+    private boolean shared;
+
+    /**
+     * Wraps the given packed ARGB pixels (row-major, no copy).
+     */
+    public PixelBuffer(int width, int height, int[] argb) {
+        if (argb.length != width * height) {
+            throw new IllegalArgumentException("Expected " + (width * height) + " pixels, got " + argb.length);
+        }
+        this.width = width;
+        this.height = height;
+        this.argb = argb;
+    }
+
+    private PixelBuffer(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * @return a buffer with every pixel set to the given ARGB value
+     */
+    public static PixelBuffer filled(int width, int height, int color) {
+        int[] px = new int[width * height];
+        Arrays.fill(px, color);
+        return new PixelBuffer(width, height, px);
+    }
+
+    /**
+     * Wraps a grayscale plane with values in 0..1 (no copy).
+     */
+    public static PixelBuffer ofGray(int width, int height, float[] plane) {
+        if (plane.length != width * height) {
+            throw new IllegalArgumentException("Expected " + (width * height) + " samples, got " + plane.length);
+        }
+        PixelBuffer b = new PixelBuffer(width, height);
+        b.gray = plane;
+        b.primary = GRAY;
+        return b;
+    }
+
+    /**
+     * Wraps a grayscale plane with unsigned values in 0..255 (no copy).
+     */
+    public static PixelBuffer ofGray(int width, int height, byte[] plane) {
+        if (plane.length != width * height) {
+            throw new IllegalArgumentException("Expected " + (width * height) + " samples, got " + plane.length);
+        }
+        PixelBuffer b = new PixelBuffer(width, height);
+        b.grayBytes = plane;
+        b.primary = GRAY_BYTES;
+        return b;
+    }
+
+    /**
+     * Creates a buffer from an image. A plain {@code TYPE_INT_ARGB} image is
+     * wrapped without copying, so later writes to either are shared; any other
+     * image is converted.
+     */
+    public static PixelBuffer of(BufferedImage img) {
+        int w = img.getWidth();
+        int h = img.getHeight();
+        int[] data = directPixels(img);
+        if (data != null) {
+            PixelBuffer b = new PixelBuffer(w, h, data);
+            b.image = img;
+            return b;
+        }
+        return new PixelBuffer(w, h, img.getRGB(0, 0, w, h, null, 0, w));
+    }
+
+    /**
+     * @return the backing array of a {@code TYPE_INT_ARGB} image laid out as
+     *         {@code width * height} packed pixels, or {@code null}
+     */
+    static int[] directPixels(BufferedImage img) {
+        if (img.getType() != BufferedImage.TYPE_INT_ARGB) return null;
+        WritableRaster raster = img.getRaster();
+        DataBuffer db = raster.getDataBuffer();
+        if (!(db instanceof DataBufferInt) || db.getNumBanks() != 1) return null;
+        if (!(raster.getSampleModel() instanceof SinglePixelPackedSampleModel)) return null;
+        SinglePixelPackedSampleModel sm = (SinglePixelPackedSampleModel) raster.getSampleModel();
+        if (sm.getScanlineStride() != img.getWidth() || db.getOffset() != 0
+                || raster.getSampleModelTranslateX() != 0 || raster.getSampleModelTranslateY() != 0) {
+            return null;
+        }
+        int[] data = ((DataBufferInt) db).getData();
+        return data.length == img.getWidth() * img.getHeight() ? data : null;
+    }
+
+    /**
+     * @return which representation the content was created in:
+     *         {@link #ARGB}, {@link #GRAY} or {@link #GRAY_BYTES}
+     */
+    int primaryKind() {
+        return primary;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return packed ARGB pixels, row-major. Do not modify.
+     */
+    public int[] getPixels() {
+        if (argb == null) {
+            int n = width * height;
+            int[] px = new int[n];
+            if (gray != null) {
+                for (int i = 0; i < n; i++) {
+                    px[i] = grayToArgb(toByte(gray[i]));
+                }
+            } else {
+                for (int i = 0; i < n; i++) {
+                    px[i] = grayToArgb(grayBytes[i] & 0xFF);
+                }
+            }
+            argb = px;
+        }
+        return argb;
+    }
+
+    /**
+     * @return packed ARGB pixels that may be written; any grayscale plane held
+     *         by this buffer is dropped
+     */
+    public int[] editPixels() {
+        int[] px = getPixels();
+        if (shared) {
+            px = px.clone();
+            argb = px;
+            image = null;
+            shared = false;
+        }
+        gray = null;
+        grayBytes = null;
+        primary = ARGB;
+        return px;
+    }
+
+    /**
+     * @return a luminance plane in 0..1, computed as the mean of R, G and B if
+     *         the buffer does not already hold one. Do not modify.
+     */
+    public float[] getGray() {
+        if (gray == null) {
+            int n = width * height;
+            float[] g = new float[n];
+            if (grayBytes != null) {
+                for (int i = 0; i < n; i++) {
+                    g[i] = (grayBytes[i] & 0xFF) / 255f;
+                }
+            } else {
+                for (int i = 0; i < n; i++) {
+                    int c = argb[i];
+                    g[i] = (float) ((((c >> 16) & 0xFF) + ((c >> 8) & 0xFF) + (c & 0xFF)) / 3.0 / 255.0);
+                }
+            }
+            gray = g;
+        }
+        return gray;
+    }
+
+    /**
+     * @return a luminance plane with unsigned values in 0..255. Do not modify.
+     */
+    public byte[] getGrayBytes() {
+        if (grayBytes == null) {
+            int n = width * height;
+            byte[] g = new byte[n];
+            if (gray != null) {
+                for (int i = 0; i < n; i++) {
+                    g[i] = (byte) toByte(gray[i]);
+                }
+            } else {
+                for (int i = 0; i < n; i++) {
+                    int c = argb[i];
+                    g[i] = (byte) ((((c >> 16) & 0xFF) + ((c >> 8) & 0xFF) + (c & 0xFF)) / 3);
+                }
+            }
+            grayBytes = g;
+        }
+        return grayBytes;
+    }
+
+    /**
+     * Returns a {@code TYPE_INT_ARGB} image backed by this buffer's ARGB
+     * pixels, for display and export. The image is created once and shares
+     * the pixel array; call {@link #editPixels()} before writing through it
+     * if the buffer may hold a grayscale plane.
+     */
+    public BufferedImage toImage() {
+        int[] px = getPixels();
+        if (image == null) {
+            DataBufferInt db = new DataBufferInt(px, px.length);
+            WritableRaster raster = Raster.createPackedRaster(db, width, height, width,
+                    ARGB_MODEL.getMasks(), null);
+            image = new BufferedImage(ARGB_MODEL, raster, false, null);
+        }
+        return image;
+    }
+
+    /**
+     * @return a 64-bit hash of the pixel content. The array the content was
+     *         created in is hashed, so the value does not change when another
+     *         representation is derived (e.g. ARGB for display).
+     */
+    public long contentHash() {
+        long h = 0xCBF29CE484222325L ^ ((long) width << 32 | height);
+        if (primary == GRAY) {
+            h = mix(h, 1);
+            for (float v : gray) {
+                h = mix(h, Float.floatToIntBits(v));
+            }
+        } else if (primary == GRAY_BYTES) {
+            h = mix(h, 2);
+            for (byte v : grayBytes) {
+                h = mix(h, v);
+            }
+        } else {
+            h = mix(h, 3);
+            for (int v : argb) {
+                h = mix(h, v);
+            }
+        }
+        return h;
+    }
+
+    private static long mix(long h, int v) {
+        return (h ^ v) * 0x100000001B3L;
+    }
+
+    /**
+     * @return the number of bytes held by the arrays of this buffer
+     */
+    public long getByteSize() {
+        long n = 0;
+        if (argb != null) n += 4L * argb.length;
+        if (gray != null) n += 4L * gray.length;
+        if (grayBytes != null) n += grayBytes.length;
+        return n;
+    }
+
+    /**
+     * @return a buffer with the same content that shares this buffer's arrays
+     *         until either of them is edited
+     */
+    public PixelBuffer share() {
+        PixelBuffer b = new PixelBuffer(width, height);
+        b.primary = primary;
+        b.argb = argb;
+        b.gray = gray;
+        b.grayBytes = grayBytes;
+        b.image = image;
+        b.shared = true;
+        shared = true;
+        return b;
+    }
+
+    /**
+     * @return a deep copy in the same representation(s)
+     */
+    public PixelBuffer copy() {
+        PixelBuffer b = new PixelBuffer(width, height);
+        b.primary = primary;
+        if (argb != null) b.argb = argb.clone();
+        if (gray != null) b.gray = gray.clone();
+        if (grayBytes != null) b.grayBytes = grayBytes.clone();
+        return b;
+    }
+
+    /**
+     * Converts a value in 0..1 to 0..255 the way the generators always have,
+     * i.e. truncating, clamped to the valid range.
+     */
+    public static int toByte(float v) {
+        int g = (int) (v * 255);
+        return g < 0 ? 0 : (g > 255 ? 255 : g);
+    }
+
+    /**
+     * @return an opaque ARGB pixel with all three channels set to {@code g}
+     */
+    public static int grayToArgb(int g) {
+        return 0xFF000000 | (g << 16) | (g << 8) | g;
+    }
+}
@@ -0,0 +1,187 @@
+package com.beder.texture;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+import org.json.JSONObject;
+
+/**
+ * Binary project container: the stack definition plus the compressed output
+ * of every applied layer, so a project opens without re-rendering.
+ *
+ * <pre>
+ * "TXPJ"  int version  int res
+ * int length, UTF-8 stack JSON (the format {@link TextureGenius#saveStack} writes)
+ * int layers, then per layer:
+ *   byte 0                          no stored output
+ *   byte 1, UTF cache key, long inputHash, long outputHash,
+ *           {@link PackedPair} (both halves)
+ * </pre>
+ *
+ * The file is read through a memory mapping of a private copy, and outputs
+ * stay compressed in it until a layer is looked at. The project file itself
+ * is never mapped, so it can be saved over while it is open (Windows refuses
+ * to replace a file that has a mapped section). A stored output is only used if it still
+ * matches: the cache key (operation, {@link Operation#getCacheTag()},
+ * parameters, resolution, input hash) must be the one the loaded layer would
+ * have, and its input must be the stored output of the layer before it.
+ * Other layers are loaded unapplied and computed when they are needed.
+ * Nothing is decompressed while loading: a restored output is checked
+ * against its stored content hash when it is first unpacked, and recomputed
+ * if it does not match (see {@link Layer#restore}).
+ */
+public final class ProjectFile {
+    public static final String EXTENSION = ".texproj";
+    private static final int MAGIC = 0x5458504A; // "TXPJ"
+    private static final int VERSION = 1;
+
+    private ProjectFile() {
+    }
+
+    /**
+     * @return true if the file starts with the project header
+     */
+    public static boolean isProject(File file) {
+        if (!file.isFile() || file.length() < 8) return false;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            return raf.readInt() == MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Writes the stack. {@code outputs.get(i)} is the output of layer
+     * {@code i}, or {@code null} to store the layer without one.
+     *
+     * The file is written next to the target and then moved over it, so an
+     * interrupted save leaves the previous version intact.
+     */
+    public static void write(File file, int res, List<Layer> layers, List<PackedPair> outputs) throws IOException {
+        File tmp = File.createTempFile(file.getName(), ".tmp", file.getAbsoluteFile().getParentFile());
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(tmp), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(res);
+                byte[] json = RenderEngine.toJSON(layers).toString().getBytes(StandardCharsets.UTF_8);
+                out.writeInt(json.length);
+                out.write(json);
+                out.writeInt(layers.size());
+                for (int i = 0; i < layers.size(); i++) {
+                    Layer l = layers.get(i);
+                    PackedPair packed = outputs.get(i);
+                    if (packed == null) {
+                        out.writeByte(0);
+                        continue;
+                    }
+                    out.writeByte(1);
+                    out.writeUTF(LayerCache.key(l.getOperation(), l.getParam(), res, l.getInputHash()));
+                    out.writeLong(l.getInputHash());
+                    out.writeLong(l.getOutputHash());
+                    packed.writeTo(out);
+                }
+            }
+            try {
+                Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            tmp.delete();
+        }
+    }
+
+    /**
+     * Reads a project into layers. Layers whose stored output is still valid
+     * at resolution {@code res} come back applied (with the output still
+     * compressed in the mapped file); the rest come back unapplied.
+     *
+     * @param redraw redraw target handed to each operation, may be {@code null}
+     */
+    public static List<Layer> read(File file, Redrawable redraw, int res) throws IOException {
+        // map a copy: the outputs keep the mapping for as long as the
+        // layers live, and the project must stay replaceable meanwhile
+        File copy = File.createTempFile("texture-project", ".snap");
+        copy.deleteOnExit();
+        MappedByteBuffer buf;
+        try {
+            Files.copy(file.toPath(), copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            try (RandomAccessFile raf = new RandomAccessFile(copy, "r");
+                 FileChannel ch = raf.getChannel()) {
+                buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            }
+        } finally {
+            // gone once unmapped; where a mapped file cannot be deleted,
+            // deleteOnExit takes care of it
+            copy.delete();
+        }
+        try {
+            if (buf.getInt() != MAGIC) {
+                throw new IOException("Not a texture project: " + file);
+            }
+            int version = buf.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported project version " + version);
+            }
+            int savedRes = buf.getInt();
+            byte[] json = new byte[buf.getInt()];
+            buf.get(json);
+            List<Layer> layers = RenderEngine.readStack(
+                    new JSONObject(new String(json, StandardCharsets.UTF_8)), redraw);
+            int count = buf.getInt();
+            if (count != layers.size()) {
+                throw new IOException("Project lists " + layers.size() + " operations but " + count + " layers");
+            }
+            // the first layer is applied to a blank pair
+            long expectedInput = new ImagePair(res).contentHash();
+            boolean chainValid = savedRes == res;
+            for (Layer l : layers) {
+                if (buf.get() == 0) {
+                    chainValid = false;
+                    continue;
+                }
+                String key = readUTF(buf);
+                long inputHash = buf.getLong();
+                long outputHash = buf.getLong();
+                PackedPair packed = PackedPair.read(buf);
+                chainValid = chainValid && inputHash == expectedInput
+                        && key.equals(LayerCache.key(l.getOperation(), l.getParam(), res, inputHash));
+                if (chainValid) {
+                    l.restore(packed, inputHash, outputHash);
+                }
+                expectedInput = outputHash;
+            }
+            return layers;
+        } catch (BufferUnderflowException | IllegalStateException e) {
+            throw new IOException("Corrupt project file: " + file, e);
+        }
+    }
+
+    /**
+     * Reads a string in the format of {@link java.io.DataOutput#writeUTF}.
+     * Cache keys are plain ASCII and Java identifiers, for which this is
+     * standard UTF-8.
+     */
+    private static String readUTF(ByteBuffer buf) {
+        int len = buf.getShort() & 0xFFFF;
+        byte[] b = new byte[len];
+        buf.get(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+}
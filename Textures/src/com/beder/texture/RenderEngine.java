@@ -0,0 +1,127 @@
+package com.beder.texture;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Renders an operation stack without a GUI. Stacks are read from the JSON
+ * written by {@link TextureGenius#saveStack}; the resolution is chosen
+ * per render, so the same stack can be rendered at any size.
+ *
+ * <pre>
+ * java com.beder.texture.RenderEngine stack.json out.png [resolution]
+ * </pre>
+ * writes {@code out_left.png} and {@code out_right.png}.
+ */
+public class RenderEngine {
+    public static final int DEFAULT_RES = 1024;
+
+    private final List<Layer> layers;
+
+    public RenderEngine(List<Layer> layers) {
+        this.layers = new ArrayList<>(layers);
+    }
+
+    /**
+     * Loads a stack file with operations that have no redraw target.
+     */
+    public static RenderEngine load(File file) throws IOException {
+        return new RenderEngine(readStack(file, null));
+    }
+
+    /**
+     * Reads a stack file into layers carrying the saved parameters. The
+     * layers have not been applied yet.
+     *
+     * @param redraw redraw target handed to each operation, may be {@code null}
+     */
+    public static List<Layer> readStack(File file, Redrawable redraw) throws IOException {
+        String txt = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        return readStack(new JSONObject(txt), redraw);
+    }
+
+    /**
+     * Builds unapplied layers from a parsed stack, see {@link #toJSON(List)}.
+     */
+    public static List<Layer> readStack(JSONObject root, Redrawable redraw) throws IOException {
+        JSONArray arr = root.getJSONArray("operations");
+        List<Layer> out = new ArrayList<>();
+        for (int i = 0; i < arr.length(); i++) {
+            JSONObject obj = arr.getJSONObject(i);
+            String cls = obj.getString("class");
+            Operation op;
+            try {
+                op = Operation.create(cls, redraw);
+            } catch (ReflectiveOperationException e) {
+                throw new IOException("Cannot create operation " + cls, e);
+            }
+            JSONObject pObj = obj.getJSONObject("params");
+            Parameters p = new Parameters();
+            for (String key : pObj.keySet()) {
+                p.put(key, pObj.getDouble(key));
+            }
+            Layer l = new Layer(op);
+            l.setParam(p);
+            out.add(l);
+        }
+        return out;
+    }
+
+    /**
+     * @return the stack definition: {@code {"operations":[{"class":..,"params":{..}}, ..]}}
+     */
+    public static JSONObject toJSON(List<Layer> layers) {
+        JSONArray arr = new JSONArray();
+        for (Layer l : layers) {
+            JSONObject obj = new JSONObject();
+            obj.put("class", l.getOperation().getClass().getName());
+            JSONObject params = new JSONObject();
+            for (Map.Entry<String, Double> e : l.getParam().entrySet()) {
+                params.put(e.getKey(), e.getValue());
+            }
+            obj.put("params", params);
+            arr.put(obj);
+        }
+        JSONObject root = new JSONObject();
+        root.put("operations", arr);
+        return root;
+    }
+
+    /**
+     * Applies every layer in order, starting from a blank pair of the given
+     * resolution.
+     */
+    public ImagePair render(int res) {
+        ImagePair pair = new ImagePair(res);
+        for (Layer l : layers) {
+            pair = l.apply(pair);
+        }
+        return pair;
+    }
+
+    public List<Layer> getLayers() {
+        return new ArrayList<>(layers);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: RenderEngine <stack.json> <output.png> [resolution]");
+            System.exit(2);
+        }
+        if (System.getProperty("java.awt.headless") == null) {
+            System.setProperty("java.awt.headless", "true");
+        }
+        int res = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_RES;
+        RenderEngine engine = load(new File(args[0]));
+        ImagePair out = engine.render(res);
+        out.writePngs(new File(args[1]));
+    }
+}
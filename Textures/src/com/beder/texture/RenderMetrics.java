@@ -0,0 +1,247 @@
+package com.beder.texture;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Collects the cost of every {@link Layer#apply}: wall time, CPU time and
+ * bytes allocated, and whether the output came from {@link LayerCache}.
+ * CPU time and allocation are summed over the applying thread and the
+ * {@link TileScheduler} workers, so tiled generators are fully accounted
+ * for; other work running on the workers at the same time (e.g. display
+ * scaling) is counted too.
+ *
+ * Figures are kept per layer (for the metrics panel) and per operation
+ * class, and can be written out with {@link #toJSON(List)}.
+ */
+public class RenderMetrics {
+    private static RenderMetrics instance;
+    private static final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private static final boolean cpuSupported = threads.isThreadCpuTimeSupported();
+    private static final com.sun.management.ThreadMXBean allocBean = allocationBean();
+
+    private final Map<Layer, Stats> layers = new WeakHashMap<Layer, Stats>();
+    private final Map<String, Stats> operations = new TreeMap<String, Stats>();
+
+    private RenderMetrics() {
+    }
+
+    public static synchronized RenderMetrics getInstance() {
+        if (instance == null) {
+            instance = new RenderMetrics();
+        }
+        return instance;
+    }
+
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean b = (com.sun.management.ThreadMXBean) threads;
+            if (b.isThreadAllocatedMemorySupported()) {
+                b.setThreadAllocatedMemoryEnabled(true);
+                return b;
+            }
+        }
+        return null;
+    }
+
+    /** Wall time, CPU time and allocation of one measured piece of work. */
+    public static final class Usage {
+        public final long wallNanos, cpuNanos, allocatedBytes;
+
+        Usage(long wallNanos, long cpuNanos, long allocatedBytes) {
+            this.wallNanos = wallNanos;
+            this.cpuNanos = cpuNanos;
+            this.allocatedBytes = allocatedBytes;
+        }
+
+        Usage plus(Usage o) {
+            return new Usage(wallNanos + o.wallNanos, cpuNanos + o.cpuNanos, allocatedBytes + o.allocatedBytes);
+        }
+    }
+
+    private static final Usage ZERO = new Usage(0, 0, 0);
+
+    /**
+     * Counters at the start of a measurement; {@link #stop()} gives the
+     * difference.
+     */
+    public static final class Probe {
+        private final long wall;
+        private final Map<Long, long[]> start;
+
+        private Probe() {
+            start = sampleThreads();
+            wall = System.nanoTime();
+        }
+
+        public Usage stop() {
+            long wallNanos = System.nanoTime() - wall;
+            long cpu = 0, alloc = 0;
+            for (Map.Entry<Long, long[]> e : sampleThreads().entrySet()) {
+                long[] before = start.get(e.getKey());
+                long[] after = e.getValue();
+                // a worker started during the measurement counts from zero
+                cpu += after[0] - (before == null ? 0 : before[0]);
+                alloc += after[1] - (before == null ? 0 : before[1]);
+            }
+            return new Usage(wallNanos, cpu, alloc);
+        }
+    }
+
+    /**
+     * Starts measuring the calling thread and the tile workers.
+     */
+    public static Probe start() {
+        return new Probe();
+    }
+
+    /**
+     * @return CPU nanoseconds and allocated bytes so far, by thread id
+     */
+    private static Map<Long, long[]> sampleThreads() {
+        Map<Long, long[]> m = new HashMap<Long, long[]>();
+        sample(Thread.currentThread(), m);
+        for (Thread t : TileScheduler.workerThreads()) {
+            sample(t, m);
+        }
+        return m;
+    }
+
+    private static void sample(Thread t, Map<Long, long[]> m) {
+        long id = t.getId();
+        long cpu = cpuSupported ? Math.max(threads.getThreadCpuTime(id), 0) : 0;
+        long alloc = allocBean != null ? Math.max(allocBean.getThreadAllocatedBytes(id), 0) : 0;
+        m.put(id, new long[] {cpu, alloc});
+    }
+
+    /** Accumulated figures for one layer or one operation class. */
+    public static final class Stats {
+        private String operation;
+        private long applies, hits, misses;
+        private Usage last = ZERO;
+        private Usage total = ZERO;
+        private Usage executed = ZERO;
+
+        public String getOperation() { return operation; }
+        public long getApplies() { return applies; }
+        public long getHits() { return hits; }
+        public long getMisses() { return misses; }
+        /** @return the cost of the most recent apply */
+        public Usage getLast() { return last; }
+        /** @return the cost of all applies */
+        public Usage getTotal() { return total; }
+        /** @return the part of {@link #getTotal()} spent in {@code executeOperation} */
+        public Usage getExecuted() { return executed; }
+
+        private void add(Usage apply, Usage execute) {
+            applies++;
+            last = apply;
+            total = total.plus(apply);
+            if (execute == null) {
+                hits++;
+            } else {
+                misses++;
+                executed = executed.plus(execute);
+            }
+        }
+
+        private JSONObject toJSON() {
+            JSONObject o = new JSONObject();
+            o.put("operation", operation);
+            o.put("applies", applies);
+            o.put("cacheHits", hits);
+            o.put("cacheMisses", misses);
+            o.put("last", usageJSON(last));
+            o.put("total", usageJSON(total));
+            o.put("executeOperation", usageJSON(executed));
+            return o;
+        }
+    }
+
+    private static JSONObject usageJSON(Usage u) {
+        JSONObject o = new JSONObject();
+        o.put("wallMs", u.wallNanos / 1e6);
+        o.put("cpuMs", u.cpuNanos / 1e6);
+        o.put("allocatedBytes", u.allocatedBytes);
+        return o;
+    }
+
+    /**
+     * Records one apply of {@code layer}.
+     * @param apply   cost of the whole apply, including the cache lookup
+     * @param execute cost of {@code executeOperation}, or {@code null} if the
+     *                output came from the cache
+     */
+    public synchronized void record(Layer layer, Usage apply, Usage execute) {
+        String name = layer.getOperation().getClass().getName();
+        stats(layers, layer, name).add(apply, execute);
+        stats(operations, name, name).add(apply, execute);
+    }
+
+    private static <K> Stats stats(Map<K, Stats> map, K key, String operation) {
+        Stats s = map.get(key);
+        if (s == null) {
+            s = new Stats();
+            s.operation = operation;
+            map.put(key, s);
+        }
+        return s;
+    }
+
+    /**
+     * @return the figures for {@code layer}, or {@code null} if it was never applied
+     */
+    public synchronized Stats get(Layer layer) {
+        return layers.get(layer);
+    }
+
+    public synchronized void clear() {
+        layers.clear();
+        operations.clear();
+    }
+
+    /**
+     * @return the figures for the given layers (in that order), per operation
+     *         class, and the {@link LayerCache} totals
+     */
+    public synchronized JSONObject toJSON(List<Layer> stack) {
+        JSONArray arr = new JSONArray();
+        for (int i = 0; i < stack.size(); i++) {
+            Stats s = layers.get(stack.get(i));
+            JSONObject o = s == null ? new JSONObject() : s.toJSON();
+            o.put("index", i);
+            o.put("title", stack.get(i).getOperation().getTitle());
+            arr.put(o);
+        }
+        JSONObject ops = new JSONObject();
+        for (Map.Entry<String, Stats> e : operations.entrySet()) {
+            ops.put(e.getKey(), e.getValue().toJSON());
+        }
+        LayerCache cache = LayerCache.getInstance();
+        JSONObject c = new JSONObject();
+        c.put("hits", cache.getHits());
+        c.put("misses", cache.getMisses());
+        JSONObject root = new JSONObject();
+        root.put("layers", arr);
+        root.put("operations", ops);
+        root.put("cache", c);
+        return root;
+    }
+
+    public void writeJSON(List<Layer> stack, File file) throws IOException {
+        try (FileWriter fw = new FileWriter(file)) {
+            fw.write(toJSON(stack).toString(2));
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.beder.texture;
+
+import java.util.concurrent.CancellationException;
+import java.util.function.DoubleConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Cancellation token and progress sink for one render. The monitor is bound
+ * to the rendering thread by {@link #call(Supplier)}, so operations reach it
+ * through {@link #current()} without it being passed down explicitly.
+ * Long-running loops should call {@link #checkCancelled()} regularly;
+ * {@link TileScheduler} checks it before every tile.
+ */
+public class RenderMonitor {
+    private static final ThreadLocal<RenderMonitor> CURRENT = new ThreadLocal<RenderMonitor>();
+
+    /** Monitor used when no render is bound: never cancelled, reports nowhere. */
+    public static final RenderMonitor NONE = new RenderMonitor(null);
+
+    private final DoubleConsumer listener;
+    private volatile boolean cancelled;
+    private volatile double stepBase;
+    private volatile double stepSize = 1;
+
+    /**
+     * @param listener receives overall progress in 0..1, may be {@code null}.
+     *                 It is called on the rendering thread.
+     */
+    public RenderMonitor(DoubleConsumer listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * @return the monitor bound to the calling thread, or {@link #NONE}
+     */
+    public static RenderMonitor current() {
+        RenderMonitor m = CURRENT.get();
+        return m == null ? NONE : m;
+    }
+
+    /**
+     * Runs the work with this monitor bound to the calling thread.
+     */
+    public <T> T call(Supplier<T> work) {
+        RenderMonitor prev = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return work.get();
+        } finally {
+            if (prev == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(prev);
+            }
+        }
+    }
+
+    public void cancel() {
+        if (this != NONE) {
+            cancelled = true;
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @throws CancellationException if {@link #cancel()} has been called
+     */
+    public void checkCancelled() {
+        if (cancelled) {
+            throw new CancellationException("Render cancelled");
+        }
+    }
+
+    /**
+     * Starts step {@code index} of {@code count}; {@link #progress(double)}
+     * then reports within that step.
+     */
+    public void beginStep(int index, int count) {
+        stepSize = 1.0 / Math.max(count, 1);
+        stepBase = index * stepSize;
+        progress(0);
+    }
+
+    /**
+     * Reports progress of the current step, {@code fraction} in 0..1.
+     */
+    public void progress(double fraction) {
+        if (listener != null) {
+            listener.accept(stepBase + Math.min(Math.max(fraction, 0), 1) * stepSize);
+        }
+    }
+}
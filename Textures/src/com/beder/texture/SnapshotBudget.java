@@ -0,0 +1,265 @@
+package com.beder.texture;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Caps the memory held by layer outputs. Every {@link Layer} that holds an
+ * output is tracked here in least-recently-used order. Once the outputs
+ * exceed the budget the oldest ones are compressed ({@link PackedPair}); once
+ * the compressed outputs exceed their own budget the oldest of those are
+ * spilled to memory-mapped temporary files. {@link Layer#getOutput()} brings
+ * a layer back transparently when it is selected again.
+ *
+ * With spilling disabled, or if a spill fails, outputs are dropped instead
+ * and recomputed from the nearest ancestor that still has one when they are
+ * needed again (see {@link LayerStack#getOutput(int)}).
+ *
+ * The budgets can be set in megabytes with the {@code texture.snapshots.mb}
+ * (default half the maximum heap) and {@code texture.snapshots.packed.mb}
+ * (default a quarter of that) system properties. Outputs kept by
+ * {@link LayerCache} count against the uncompressed budget too, and are
+ * dropped first: the cache shares its buffers with layer outputs, so
+ * compressing a layer whose output is still cached would free nothing.
+ *
+ * The layers to compress, spill or drop are picked under the budget's lock,
+ * but the work itself runs on a background thread without it, so storing or
+ * touching a layer never waits for another layer's compression. A layer
+ * that is used again meanwhile keeps its output.
+ */
+public class SnapshotBudget {
+    private static final long MB = 1024 * 1024;
+    private static SnapshotBudget instance;
+
+    private final LinkedHashMap<Layer, Long> resident;
+    private final LinkedHashMap<Layer, Long> packed;
+    private long capacity, packedCapacity;
+    private long size, packedSize;
+    private boolean spillEnabled = true;
+    private long packs, spills, evictions;
+    private final ExecutorService packer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "snapshot-pack");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private SnapshotBudget() {
+        resident = new LinkedHashMap<Layer, Long>(16, 0.75f, true);
+        packed = new LinkedHashMap<Layer, Long>(16, 0.75f, true);
+        capacity = Long.getLong("texture.snapshots.mb", Runtime.getRuntime().maxMemory() / 2 / MB) * MB;
+        packedCapacity = Long.getLong("texture.snapshots.packed.mb", capacity / 4 / MB) * MB;
+    }
+
+    public static synchronized SnapshotBudget getInstance() {
+        if (instance == null) {
+            instance = new SnapshotBudget();
+        }
+        return instance;
+    }
+
+    /**
+     * Records that {@code layer} now holds an uncompressed output of
+     * {@code bytes} and makes room for it.
+     */
+    public synchronized void stored(Layer layer, long bytes) {
+        Long old = packed.remove(layer);
+        if (old != null) packedSize -= old;
+        old = resident.put(layer, bytes);
+        if (old != null) size -= old;
+        size += bytes;
+        trim(layer);
+    }
+
+    /**
+     * Marks the output of {@code layer} as recently used.
+     */
+    public synchronized void touched(Layer layer) {
+        resident.get(layer);
+    }
+
+    /**
+     * Stops tracking {@code layer} and drops its output, e.g. when it leaves
+     * the stack.
+     */
+    public synchronized void released(Layer layer) {
+        Long old = resident.remove(layer);
+        if (old != null) size -= old;
+        old = packed.remove(layer);
+        if (old != null) packedSize -= old;
+        layer.evict();
+    }
+
+    /**
+     * Makes room after {@link LayerCache} stored another output.
+     */
+    synchronized void cacheGrew() {
+        trim(null);
+    }
+
+    /**
+     * Drops cache entries until the cache fits next to the uncompressed
+     * outputs, then picks the outputs to compress until those fit, and
+     * hands them to the background thread, which then spills or drops
+     * compressed ones until those fit too.
+     */
+    private void trim(Layer keep) {
+        LayerCache cache = LayerCache.getInstance();
+        if (size + cache.getSize() > capacity) {
+            cache.trimTo(Math.max(0, capacity - size));
+        }
+        List<Layer> layers = new ArrayList<>();
+        List<ImagePair> outputs = new ArrayList<>();
+        Iterator<Map.Entry<Layer, Long>> it = resident.entrySet().iterator();
+        while (size > capacity && it.hasNext()) {
+            Map.Entry<Layer, Long> e = it.next();
+            Layer l = e.getKey();
+            if (l == keep) continue;
+            size -= e.getValue();
+            it.remove();
+            ImagePair out = l.getHeldOutput();
+            if (out != null) {
+                layers.add(l);
+                outputs.add(out);
+            }
+        }
+        if (!layers.isEmpty() || packedSize > packedCapacity) {
+            packer.execute(() -> shrink(layers, outputs));
+        }
+    }
+
+    /**
+     * Compresses the given outputs, then spills or drops the oldest
+     * compressed ones while they exceed their budget. Runs on the background
+     * thread; the lock is only taken to update the bookkeeping.
+     */
+    private void shrink(List<Layer> layers, List<ImagePair> outputs) {
+        for (int i = 0; i < layers.size(); i++) {
+            Layer l = layers.get(i);
+            PackedPair p = l.pack(outputs.get(i));
+            if (p == null) continue;
+            synchronized (this) {
+                // unless it was unpacked again meanwhile
+                if (l.getPackedOutput() == p && !resident.containsKey(l)) {
+                    packed.put(l, p.getByteSize());
+                    packedSize += p.getByteSize();
+                    packs++;
+                }
+            }
+        }
+        List<Layer> victims = new ArrayList<>();
+        List<PackedPair> pairs = new ArrayList<>();
+        boolean spill;
+        synchronized (this) {
+            Iterator<Map.Entry<Layer, Long>> it = packed.entrySet().iterator();
+            while (packedSize > packedCapacity && it.hasNext()) {
+                Map.Entry<Layer, Long> e = it.next();
+                Layer l = e.getKey();
+                packedSize -= e.getValue();
+                it.remove();
+                PackedPair p = l.getPackedOutput();
+                if (p != null) {
+                    victims.add(l);
+                    pairs.add(p);
+                }
+            }
+            spill = spillEnabled;
+        }
+        for (int i = 0; i < victims.size(); i++) {
+            Layer l = victims.get(i);
+            PackedPair p = pairs.get(i);
+            if (spill) {
+                try {
+                    if (l.spill(p)) {
+                        synchronized (this) {
+                            spills++;
+                        }
+                    }
+                    continue;
+                } catch (IOException ex) {
+                    // no room on disk: fall back to recomputing
+                }
+            }
+            l.evict(p);
+            synchronized (this) {
+                evictions++;
+            }
+        }
+    }
+
+    /**
+     * Waits until the outputs picked so far have been compressed, spilled or
+     * dropped.
+     */
+    void flush() {
+        try {
+            packer.submit(() -> { }).get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    /**
+     * Sets the number of uncompressed output bytes kept before layers are
+     * compressed.
+     */
+    public synchronized void setCapacity(long bytes) {
+        capacity = bytes;
+        trim(null);
+    }
+
+    public synchronized long getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Sets the number of compressed bytes kept on the heap before layers are
+     * spilled (or evicted, if spilling is off).
+     */
+    public synchronized void setPackedCapacity(long bytes) {
+        packedCapacity = bytes;
+        trim(null);
+    }
+
+    public synchronized long getPackedCapacity() {
+        return packedCapacity;
+    }
+
+    public synchronized void setSpillEnabled(boolean enabled) {
+        spillEnabled = enabled;
+    }
+
+    /**
+     * @return the bytes held by uncompressed outputs
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * @return the bytes held on the heap by compressed outputs
+     */
+    public synchronized long getPackedSize() {
+        return packedSize;
+    }
+
+    public synchronized long getPacks() {
+        return packs;
+    }
+
+    public synchronized long getSpills() {
+        return spills;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+}
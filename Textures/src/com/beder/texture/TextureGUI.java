@@ -32,12 +32,17 @@ public class TextureGUI implements Redrawable {
     private JPanel mainPanel;
     private JPanel imagePanel;
     private JPanel opControlPanel;
-    private ImageIcon leftIcon;
-    private ImageIcon rightIcon;
+    private ImageView leftView;
+    private ImageView rightView;
     private JButton generateButton;
+    private JButton variationsButton;
     private JButton saveButton;
     private JButton scatterButton;
     private JButton loadImagesButton;
+    private JProgressBar progressBar;
+    /** Counts background jobs shown on the progress bar, so only the latest hides it. */
+    private int renders;
+    private MetricsPanel metricsPanel;
 
     public TextureGUI(TextureGenius genius) {
         this.genius = genius;
@@ -73,9 +78,11 @@ public class TextureGUI implements Redrawable {
 
         // Center: image display with arrows
         imagePanel = new JPanel(new MigLayout("gapx 10px", "", "[center][center]"));
-        leftIcon = new ImageIcon(curImage.left.getScaledInstance(512, 512, Image.SCALE_SMOOTH));
-        rightIcon = new ImageIcon(curImage.right.getScaledInstance(512, 512, Image.SCALE_SMOOTH));
-        imagePanel.add(new JLabel(leftIcon));
+        leftView = new ImageView(512);
+        rightView = new ImageView(512);
+        leftView.setBuffer(curImage.getLeft());
+        rightView.setBuffer(curImage.getRight());
+        imagePanel.add(leftView);
 
         JPanel arrowsPanel = new JPanel();
         arrowsPanel.setLayout(new BoxLayout(arrowsPanel, BoxLayout.Y_AXIS));
@@ -86,13 +93,17 @@ public class TextureGUI implements Redrawable {
         arrowsPanel.add(mixButton);
 
         imagePanel.add(arrowsPanel);
-        imagePanel.add(new JLabel(rightIcon));
+        imagePanel.add(rightView);
 
         mainPanel.add(imagePanel, BorderLayout.CENTER);
 
-        // East: operations stack panel from genius
+        // East: operations stack panel from genius, with the cost of each layer below it
         JPanel stackPanel = genius.getStackPanel();
-        mainPanel.add(stackPanel, BorderLayout.EAST);
+        metricsPanel = new MetricsPanel();
+        JPanel eastPanel = new JPanel(new BorderLayout());
+        eastPanel.add(stackPanel, BorderLayout.CENTER);
+        eastPanel.add(metricsPanel, BorderLayout.SOUTH);
+        mainPanel.add(eastPanel, BorderLayout.EAST);
 
         // South: buttons to add new operations
         JPanel opPanel = new JPanel(new FlowLayout());
@@ -118,31 +129,24 @@ public class TextureGUI implements Redrawable {
         opPanel.add(voronoiButton);
         opPanel.add(vegetationButton);
         opPanel.add(scatterButton);
+        progressBar = new JProgressBar(0, 100);
+        progressBar.setVisible(false);
+        opPanel.add(progressBar);
         mainPanel.add(opPanel, BorderLayout.SOUTH);
 
         // North: operation configuration panel
         opControlPanel = new JPanel(new FlowLayout());
         generateButton = new JButton("Generate");
+        variationsButton = new JButton("Variations");
+        variationsButton.addActionListener(e -> new VariationDialog(this, frame, genius).setVisible(true));
         saveButton  = new JButton("Save");
         saveButton.addActionListener(e -> {
-            // Apply the current operation and then export the images
-            ImagePair img = genius.saveCurrent();
-            applyImage(img);
-
-            JFileChooser chooser = new JFileChooser();
-            chooser.setDialogTitle("Save Texture");
-            chooser.setSelectedFile(new File("texture.png"));
-            if (chooser.showSaveDialog(frame) == JFileChooser.APPROVE_OPTION) {
-                try {
-                    exportCurrentImage(chooser.getSelectedFile());
-                } catch (IOException ex) {
-                    JOptionPane.showMessageDialog(
-                        frame,
-                        "Failed to save image: " + ex.getMessage(),
-                        "Save Error", JOptionPane.ERROR_MESSAGE
-                    );
-                }
-            }
+            // Apply the current operation in the background, then export the images
+            int job = showProgress();
+            genius.saveCurrentInBackground(this::setProgress, this::applyImage, img -> {
+                applyImage(img);
+                exportImages();
+            }, hideProgress(job));
         });
         mainPanel.add(opControlPanel, BorderLayout.NORTH);
 
@@ -180,34 +184,19 @@ public class TextureGUI implements Redrawable {
                 if (ch.showSaveDialog(frame) != JFileChooser.APPROVE_OPTION) return;
                 f = ch.getSelectedFile();
             }
-            try {
-                genius.saveStack(f);
-            } catch (IOException ex) {
-                JOptionPane.showMessageDialog(frame,
-                        "Failed to save file: " + ex.getMessage(),
-                        "Save Error", JOptionPane.ERROR_MESSAGE);
-            }
+            saveStack(f);
         });
 
         saveAsItem.addActionListener(e -> {
             JFileChooser ch = new JFileChooser();
             if (ch.showSaveDialog(frame) == JFileChooser.APPROVE_OPTION) {
-                try {
-                    genius.saveStack(ch.getSelectedFile());
-                } catch (IOException ex) {
-                    JOptionPane.showMessageDialog(frame,
-                            "Failed to save file: " + ex.getMessage(),
-                            "Save Error", JOptionPane.ERROR_MESSAGE);
-                }
+                saveStack(ch.getSelectedFile());
             }
         });
 
         closeItem.addActionListener(e -> frame.dispose());
         // --- Action Listeners ---
-        generateButton.addActionListener(e -> {
-            ImagePair img = genius.applyCurrent();
-            applyImage(img);
-        });
+        generateButton.addActionListener(e -> generate());
 
         simplexButton.addActionListener(e -> addOperation(new SimplexNoiseGenerator(this)));
         cellNoiseButton.addActionListener(e -> addOperation(new CellNoiseGenerator(this)));
@@ -215,14 +204,79 @@ public class TextureGUI implements Redrawable {
         voronoiButton.addActionListener(e -> addOperation(new VoronoiNoiseGenerator(this)));
         vegetationButton.addActionListener(e -> addOperation(new VegetationNoiseGenerator(this)));
         scatterButton.addActionListener(e -> addOperation(new ScatterOperation(this)));
-        copyButton.addActionListener(e -> {
-            addOperation(new CopyMask(this));
-            ImagePair img = genius.applyCurrent();
-            applyImage(img);
-        });
+        copyButton.addActionListener(e -> addOperation(new CopyMask(this), this::generate));
         mixButton.addActionListener(e -> addOperation(new MixMask(this)));
     }
     
+    /**
+     * Renders the current layer with the values in its controls in the
+     * background, showing progress.
+     */
+    public void generate() {
+        int job = showProgress();
+        genius.applyCurrentInBackground(this::setProgress, this::applyImage, this::applyImage,
+                hideProgress(job));
+    }
+
+    /**
+     * Asks for a file name and writes the current images as PNGs.
+     */
+    private void exportImages() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Save Texture");
+        chooser.setSelectedFile(new File("texture.png"));
+        if (chooser.showSaveDialog(frame) == JFileChooser.APPROVE_OPTION) {
+            try {
+                exportCurrentImage(chooser.getSelectedFile());
+            } catch (IOException ex) {
+                JOptionPane.showMessageDialog(
+                    frame,
+                    "Failed to save image: " + ex.getMessage(),
+                    "Save Error", JOptionPane.ERROR_MESSAGE
+                );
+            }
+        }
+    }
+
+    /**
+     * Shows the progress bar for a new background job.
+     * @return the job's number, for {@link #hideProgress(int)}
+     */
+    private int showProgress() {
+        progressBar.setValue(0);
+        progressBar.setVisible(true);
+        return ++renders;
+    }
+
+    private void setProgress(double fraction) {
+        progressBar.setValue((int) Math.round(fraction * 100));
+    }
+
+    /**
+     * @return a callback that hides the progress bar when job {@code job}
+     *         has ended, unless a newer job has started since
+     */
+    private Runnable hideProgress(int job) {
+        return () -> {
+            if (job == renders) progressBar.setVisible(false);
+        };
+    }
+
+    /**
+     * Saves the stack, showing progress while a project file is written in
+     * the background.
+     */
+    private void saveStack(File f) {
+        int job = showProgress();
+        try {
+            genius.saveStack(f, this::setProgress, hideProgress(job));
+        } catch (IOException ex) {
+            JOptionPane.showMessageDialog(frame,
+                    "Failed to save file: " + ex.getMessage(),
+                    "Save Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
     /****
      * Called by button action listeners to create a new operation (layer)
      * @param o
@@ -232,20 +286,25 @@ public class TextureGUI implements Redrawable {
      * unapplied changes, it is first saved so that the new operation can be
      * appended correctly.  This allows buttons like "Copy" to work even when
      * the previous step has only been generated but not explicitly saved by the
-     * user.
+     * user.  The saving and the new layer's input are rendered in the
+     * background; the layer appears once they are ready.
      */
     private void addOperation(Operation op) {
-        // If the current state is dirty, save the pending operation so that the
-        // stack remains consistent and the new operation has a valid input
-        if (!genius.isClean()) {
-            ImagePair img = genius.saveCurrent();
-            applyImage(img);
-        }
+        addOperation(op, null);
+    }
 
-        ImagePair img = genius.addOperation(op);
-        applyImage(img);
-        showOptions();
-        frame.repaint();
+    /**
+     * Like {@link #addOperation(Operation)}, then runs {@code then} once the
+     * layer has been added.
+     */
+    private void addOperation(Operation op, Runnable then) {
+        int job = showProgress();
+        genius.addOperationInBackground(op, this::setProgress, img -> {
+            applyImage(img);
+            showOptions();
+            frame.repaint();
+            if (then != null) then.run();
+        }, hideProgress(job));
     }
 
     /**
@@ -272,7 +331,10 @@ public class TextureGUI implements Redrawable {
             generateButton.setEnabled(true);
         }
 
+        variationsButton.setEnabled(generateButton.isEnabled());
+
         controlPanel.add(generateButton);
+        controlPanel.add(variationsButton);
         opControlPanel.add(controlPanel);
         opControlPanel.add(saveButton);
         opControlPanel.revalidate();
@@ -285,14 +347,18 @@ public class TextureGUI implements Redrawable {
     @Override
     public void applyImage(ImagePair current) {
         this.curImage = current;
-        leftIcon.setImage(current.left.getScaledInstance(512, 512, Image.SCALE_SMOOTH));
-        rightIcon.setImage(current.right.getScaledInstance(512, 512, Image.SCALE_SMOOTH));
-        ((JLabel) imagePanel.getComponent(0)).setIcon(leftIcon); // FIX: reset JLabel icon
-        ((JLabel) imagePanel.getComponent(2)).setIcon(rightIcon);
-        imagePanel.revalidate();
-        imagePanel.repaint();
+        leftView.setBuffer(current.getLeft());
+        rightView.setBuffer(current.getRight());
+        metricsPanel.refresh(genius.getLayers());
     }    
     
+    /**
+     * Shows an error dialog over the main window.
+     */
+    public void showError(String title, String message) {
+        JOptionPane.showMessageDialog(frame, message, title, JOptionPane.ERROR_MESSAGE);
+    }
+
     @Override
     public int getRes() {
         return res;
@@ -302,11 +368,7 @@ public class TextureGUI implements Redrawable {
      * Export the current left and right images using the provided base file.
      */
     public void exportCurrentImage(java.io.File base) throws IOException {
-        String name = base.getName().replaceFirst("(\\.[^.]+)?$", "");
-        java.io.File leftFile  = new java.io.File(base.getParentFile(), name + "_left.png");
-        java.io.File rightFile = new java.io.File(base.getParentFile(), name + "_right.png");
-        javax.imageio.ImageIO.write(curImage.left,  "png", leftFile);
-        javax.imageio.ImageIO.write(curImage.right, "png", rightFile);
+        curImage.writePngs(base);
     }
 
 	@Override
@@ -1,10 +1,19 @@
 package com.beder.texture;
 
 import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
 import org.json.*;
 import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
 
 /**
  * TextureGenius handles all control and logic: managing the operation stack,
@@ -18,6 +27,27 @@ public class TextureGenius {
     private boolean isDirty;
     private java.io.File stackFile;
         private TextureGUI gui;
+    /** Renders one request at a time, so the stack is never recomputed concurrently. */
+    private final ExecutorService renderer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "texture-render");
+        t.setDaemon(true);
+        return t;
+    });
+    /** The quick first pass of a background render is made at res / PREVIEW_DIVISOR. */
+    private static final int PREVIEW_DIVISOR = 4;
+    /** Below this size a preview pass is not worth it. */
+    private static final int MIN_PREVIEW_RES = 64;
+    /** The render the user asked for: apply or variations. */
+    private RenderMonitor rendering;
+    private Future<?> renderTask;
+    /**
+     * Showing the selected layer and filling in outputs after it. Selecting
+     * another layer cancels only this, never {@link #rendering}.
+     */
+    private RenderMonitor filling;
+    private Future<?> fillTask;
+    /** Writing a project file; it is waited for, never cancelled. */
+    private Future<?> saveTask;
 
     public static void main(String[] args) {
         // Initialize logic and launch GUI
@@ -54,6 +84,13 @@ public class TextureGenius {
         return stack.getStackPanel();
     }
 
+    /**
+     * Returns the layers of the stack, in order.
+     */
+    public java.util.List<Layer> getLayers() {
+        return stack.getLayers();
+    }
+
     /**
      * Retrieves the currently selected operation for configuring its UI.
      */
@@ -62,54 +99,268 @@ public class TextureGenius {
     }
 
     /**
-     * Adds a new operation to the stack and marks the state as dirty.
+     * Adds a new operation after the current layer and marks the state dirty.
+     * Unapplied edits of the current layer are applied first, as by
+     * {@link #saveCurrentInBackground}, so the new layer gets a valid input.
+     * The input is computed on the render thread, after cancelling any render
+     * in flight; the layer is then inserted on the Event Dispatch Thread and
+     * its input handed to {@code done}. {@code progress} and the callbacks
+     * are called as by {@link #applyCurrentInBackground}.
+     * Must be called on the Event Dispatch Thread.
      */
-    public ImagePair addOperation(Operation op) {
-    	Layer current = stack.getCurrent();
-		ImagePair input = current == null ? new ImagePair(res) : current.getOutput();
-		Layer l = new Layer(op, input);
-		stack.add(l);
-		stack.buildStackPanel();
-		gui.applyImage(input);
-        this.curImage = input;
-        this.isDirty = true;
-        return input;
+    public void addOperationInBackground(Operation op, DoubleConsumer progress, Consumer<ImagePair> done,
+                                         Runnable finished) {
+        Layer current = stack.getCurrent();
+        boolean save = current != null && !isClean();
+        Parameters p = save ? current.getOperation().getUIParameters() : null;
+        cancelRender(false);
+        RenderMonitor monitor = new RenderMonitor(f -> SwingUtilities.invokeLater(() -> progress.accept(f)));
+        rendering = monitor;
+        renderTask = submit(() -> {
+            ImagePair input;
+            try {
+                input = monitor.call(() -> {
+                    if (current == null) return new ImagePair(res);
+                    if (save) {
+                        current.setParam(p);
+                        return recomputeFrom(current);
+                    }
+                    return stack.getOutput(stack.indexOf(current));
+                });
+            } catch (CancellationException ex) {
+                return;
+            } catch (RuntimeException ex) {
+                failed(monitor, ex);
+                return;
+            }
+            publish(monitor, () -> {
+                // the stack only changes on this thread, with the render thread idle
+                cancelRender(true);
+                stack.add(new Layer(op, input));
+                this.curImage = input;
+                this.isDirty = true;
+                done.accept(input);
+            });
+        }, finished);
     }
 
     /**
-     * Applies the current operation (without saving), marking the state dirty.
+     * Renders the current layer with the values in its controls in the
+     * background, like {@link #applyCurrentInBackground}, and keeps them:
+     * once the render is done the dirty flag is cleared and the stack panel
+     * shows the new parameters. A cancelled save leaves the state dirty.
+     * Must be called on the Event Dispatch Thread.
      */
-    public ImagePair applyCurrent() {
-	    Layer l = stack.getCurrent();
-	    // ← grab the sliders/textfields before we execute
-	    Parameters p = l.getOperation().getUIParameters();
-	    l.setParam(p);
-	    ImagePair output = l.apply(l.getInput());        
-	    this.curImage = output;
-        this.isDirty = true;
-        return output;
+    public void saveCurrentInBackground(DoubleConsumer progress, Consumer<ImagePair> preview,
+                                        Consumer<ImagePair> done, Runnable finished) {
+        renderCurrent(progress, preview, output -> {
+            this.isDirty = false;
+            stack.buildStackPanel();
+            done.accept(output);
+        }, finished);
     }
 
     /**
-     * Saves (applies permanently) the current operation and clears the dirty flag.
+     * Applies the current layer with the values in its controls, marking the
+     * state dirty, on a background thread so the UI stays responsive. Layers
+     * after it are brought up to date as well. A render still in flight is
+     * cancelled first.
+     * If the layer has to be re-run, the stack is first rendered at
+     * 1/{@value #PREVIEW_DIVISOR} resolution and handed to {@code preview}, then
+     * refined at full resolution and handed to {@code done}.
+     * The callbacks and {@code progress} (0..1) are called on the Event
+     * Dispatch Thread; none is called once the render is cancelled, except
+     * {@code finished}, which runs after the render has ended in any way
+     * (done, cancelled or failed).
+     * Must be called on the Event Dispatch Thread.
      */
-    public ImagePair saveCurrent() {
+    public void applyCurrentInBackground(DoubleConsumer progress, Consumer<ImagePair> preview,
+                                         Consumer<ImagePair> done, Runnable finished) {
+        renderCurrent(progress, preview, done, finished);
+    }
+
+    private void renderCurrent(DoubleConsumer progress, Consumer<ImagePair> preview,
+                               Consumer<ImagePair> done, Runnable finished) {
         Layer l = stack.getCurrent();
         Parameters p = l.getOperation().getUIParameters();
-        l.setParam(p);
-        stack.buildStackPanel();
-        ImagePair output = l.apply(l.getInput());
-        this.curImage = output;
-        this.isDirty = false;
-        return output;
+        cancelRender(false);
+        this.isDirty = true;
+        RenderMonitor monitor = new RenderMonitor(f -> SwingUtilities.invokeLater(() -> progress.accept(f)));
+        rendering = monitor;
+        renderTask = submit(() -> {
+            ImagePair output;
+            try {
+                output = monitor.call(() -> {
+                    l.setParam(p);
+                    stack.markDirty(stack.indexOf(l));
+                    int previewRes = res / PREVIEW_DIVISOR;
+                    if (previewRes >= MIN_PREVIEW_RES && l.paramsChanged()) {
+                        ImagePair low = stack.renderPreview(stack.indexOf(l), previewRes, res);
+                        publish(monitor, () -> preview.accept(low));
+                    }
+                    return recomputeFrom(l);
+                });
+            } catch (CancellationException ex) {
+                return;
+            } catch (RuntimeException ex) {
+                failed(monitor, ex);
+                return;
+            }
+            publish(monitor, () -> {
+                this.curImage = output;
+                done.accept(output);
+            });
+        }, finished);
     }
-    
-    public void newCurrent() {
+
+    /**
+     * Renders the current layer once per parameter set, at 1/{@code divisor}
+     * resolution and concurrently (see {@link VariationRenderer}), for a
+     * contact sheet. The layers above it are rendered once at that resolution
+     * and shared. {@code cell} receives each variation's index and output as
+     * it finishes, on the Event Dispatch Thread. Any other render cancels
+     * this one. Must be called on the Event Dispatch Thread.
+     */
+    public void renderVariations(java.util.List<Parameters> variants, int divisor,
+                                 java.util.function.BiConsumer<Integer, ImagePair> cell) {
         Layer l = stack.getCurrent();
-        if (l != null && l.getOutput() != null) {
-            gui.applyImage(l.getOutput());
-            gui.showOptions();
+        if (l == null) return;
+        int index = stack.indexOf(l);
+        int lowRes = Math.max(res / divisor, 1);
+        cancelRender(false);
+        RenderMonitor monitor = new RenderMonitor(null);
+        rendering = monitor;
+        renderTask = renderer.submit(() -> {
+            try {
+                monitor.call(() -> {
+                    ImagePair input = index == 0 ? new ImagePair(lowRes)
+                            : stack.renderPreview(index - 1, lowRes, res);
+                    return VariationRenderer.render(l.getOperation(), input, variants, (double) lowRes / res,
+                            (i, out) -> publish(monitor, () -> cell.accept(i, out)));
+                });
+            } catch (CancellationException ex) {
+                // superseded
+            } catch (RuntimeException ex) {
+                failed(monitor, ex);
+            }
+        });
+    }
+
+    /**
+     * Queues {@code task} on the render thread. {@code finished} runs on the
+     * Event Dispatch Thread once the returned Future is done, however the
+     * task ended.
+     */
+    private Future<?> submit(Runnable task, Runnable finished) {
+        FutureTask<Void> future = new FutureTask<Void>(task, null) {
+            @Override
+            protected void done() {
+                SwingUtilities.invokeLater(finished);
+            }
+        };
+        renderer.execute(future);
+        return future;
+    }
+
+    /**
+     * Reports a render that failed: on the Event Dispatch Thread, the render
+     * is forgotten, if it is still the current one, and the error is shown.
+     * Layers it did not get to stay dirty and are rendered when needed.
+     */
+    private void failed(RenderMonitor monitor, RuntimeException ex) {
+        SwingUtilities.invokeLater(() -> {
+            if (rendering == monitor) {
+                rendering = null;
+                renderTask = null;
+            }
+            if (filling == monitor) {
+                filling = null;
+                fillTask = null;
+            }
+            if (gui != null) {
+                gui.showError("Render Error", "Failed to render: " + ex);
+            }
+        });
+    }
+
+    /**
+     * Runs {@code r} on the Event Dispatch Thread unless the render has been
+     * superseded by then.
+     */
+    private static void publish(RenderMonitor monitor, Runnable r) {
+        SwingUtilities.invokeLater(() -> {
+            if (!monitor.isCancelled()) r.run();
+        });
+    }
+
+    /**
+     * @return whether a background render is queued or running
+     */
+    public boolean isRendering() {
+        return renderTask != null && !renderTask.isDone()
+                || fillTask != null && !fillTask.isDone()
+                || saveTask != null && !saveTask.isDone();
+    }
+
+    /**
+     * Cancels the background renders, if any. A project being saved is
+     * finished, not cancelled.
+     * @param wait whether to block until the render thread has stopped
+     */
+    public void cancelRender(boolean wait) {
+        cancelFill(wait);
+        if (wait && saveTask != null) {
+            await(saveTask);
+            saveTask = null;
+        }
+        if (rendering == null) return;
+        rendering.cancel();
+        if (wait) {
+            await(renderTask);
         }
+        rendering = null;
+        renderTask = null;
+    }
+
+    /**
+     * Cancels showing and filling in layers, leaving a render the user
+     * started alone.
+     */
+    private void cancelFill(boolean wait) {
+        if (filling == null) return;
+        filling.cancel();
+        if (wait) {
+            await(fillTask);
+        }
+        filling = null;
+        fillTask = null;
+    }
+
+    private static void await(Future<?> task) {
+        try {
+            task.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ex) {
+            // failures are already reported on the Event Dispatch Thread
+        }
+    }
+
+    /**
+     * Marks the given layer and everything after it dirty, re-applies the ones
+     * whose parameters or input changed, and returns the given layer's output.
+     */
+    private ImagePair recomputeFrom(Layer l) {
+        stack.markDirty(stack.indexOf(l));
+        stack.recompute();
+        return stack.getOutput(stack.indexOf(l));
+    }
+    
+    /**
+     * Shows the newly selected layer, see {@link #showCurrent()}.
+     */
+    public void newCurrent() {
+        showCurrent();
     }
 
     /**
@@ -121,6 +372,7 @@ public class TextureGenius {
 
     /** Reset the stack and images to a blank state. */
     public void reset() {
+        cancelRender(true);
         stack.clear();
         curImage = new ImagePair(res);
         isDirty = false;
@@ -131,49 +383,167 @@ public class TextureGenius {
     /** Returns the file used for stack persistence. */
     public java.io.File getStackFile() { return stackFile; }
 
-    /** Save the current operation stack to the given file in JSON format. */
-    public void saveStack(java.io.File file) throws IOException {
-        org.json.JSONArray arr = new org.json.JSONArray();
-        for (Layer l : stack.getLayers()) {
-            org.json.JSONObject obj = new org.json.JSONObject();
-            obj.put("class", l.getOperation().getClass().getName());
-            org.json.JSONObject params = new org.json.JSONObject();
-            for (java.util.Map.Entry<String,Double> e : l.getParam().entrySet()) {
-                params.put(e.getKey(), e.getValue());
-            }
-            obj.put("params", params);
-            arr.put(obj);
+    /**
+     * Save the current operation stack to the given file. Files ending in
+     * {@link ProjectFile#EXTENSION} also store the layer outputs: those are
+     * packed and written on the render thread, after any render in flight,
+     * reporting {@code progress} (0..1) on the Event Dispatch Thread, and a
+     * failure is shown in an error dialog. Anything else gets the JSON stack
+     * definition, written right away. {@code finished} runs on the Event
+     * Dispatch Thread once the save has ended either way.
+     * Must be called on the Event Dispatch Thread.
+     * @throws IOException if the JSON stack cannot be written
+     */
+    public void saveStack(java.io.File file, DoubleConsumer progress, Runnable finished) throws IOException {
+        if (file.getName().endsWith(ProjectFile.EXTENSION)) {
+            saveProject(file, progress, finished);
+            return;
         }
-        org.json.JSONObject root = new org.json.JSONObject();
-        root.put("operations", arr);
         try (java.io.FileWriter fw = new java.io.FileWriter(file)) {
-            fw.write(root.toString(2));
+            fw.write(RenderEngine.toJSON(stack.getLayers()).toString(2));
+        } finally {
+            finished.run();
         }
         stackFile = file;
     }
 
-    /** Load an operation stack from the given JSON file. */
+    private void saveProject(java.io.File file, DoubleConsumer progress, Runnable finished) {
+        cancelFill(false);
+        java.util.List<Layer> layers = stack.getLayers();
+        RenderMonitor monitor = new RenderMonitor(f -> SwingUtilities.invokeLater(() -> progress.accept(f)));
+        saveTask = submit(() -> {
+            try {
+                monitor.call(() -> {
+                    // one step per layer, one for writing
+                    java.util.List<PackedPair> outputs = new java.util.ArrayList<>();
+                    for (int i = 0; i < layers.size(); i++) {
+                        monitor.beginStep(i, layers.size() + 1);
+                        Layer l = layers.get(i);
+                        PackedPair packed = null;
+                        if (!stack.needsRender(i)) {
+                            packed = l.getPackedOutput();
+                            if (packed == null) {
+                                packed = PackedPair.pack(stack.getOutput(i));
+                            }
+                        }
+                        outputs.add(packed);
+                    }
+                    monitor.beginStep(layers.size(), layers.size() + 1);
+                    try {
+                        ProjectFile.write(file, res, layers, outputs);
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                    return null;
+                });
+                SwingUtilities.invokeLater(() -> stackFile = file);
+            } catch (RuntimeException ex) {
+                Throwable cause = ex instanceof UncheckedIOException ? ex.getCause() : ex;
+                SwingUtilities.invokeLater(() -> {
+                    if (gui != null) {
+                        gui.showError("Save Error", "Failed to save file: " + cause.getMessage());
+                    }
+                });
+            }
+        }, finished);
+    }
+
+    /**
+     * Load an operation stack from a JSON stack or a binary project file.
+     * Nothing is rendered up front: layers restored from a project keep their
+     * stored outputs, the rest are computed when they are needed. The last
+     * layer is selected and shown once it is ready.
+     */
     public void loadStack(java.io.File file) throws Exception {
         reset();
-        String txt = new String(java.nio.file.Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
-        org.json.JSONObject root = new org.json.JSONObject(txt);
-        org.json.JSONArray arr = root.getJSONArray("operations");
-        for (int i = 0; i < arr.length(); i++) {
-            org.json.JSONObject obj = arr.getJSONObject(i);
-            String cls = obj.getString("class");
-            java.lang.Class<?> c = java.lang.Class.forName(cls);
-            java.lang.reflect.Constructor<?> cons = c.getConstructor(Redrawable.class);
-            Operation op = (Operation)cons.newInstance(gui);
-            addOperation(op);
-            org.json.JSONObject pObj = obj.getJSONObject("params");
-            Parameters p = new Parameters();
-            for (String key : pObj.keySet()) {
-                p.put(key, pObj.getDouble(key));
-            }
-            stack.getCurrent().setParam(p);
-            saveCurrent();
+        java.util.List<Layer> layers = ProjectFile.isProject(file)
+                ? ProjectFile.read(file, gui, res)
+                : RenderEngine.readStack(file, gui);
+        for (Layer l : layers) {
+            l.getOperation().setUIParameters(l.getParam());
         }
+        stack.load(layers);
         stackFile = file;
+        showCurrent();
+    }
+
+    /**
+     * Shows the current layer's output. If it has to be computed (with any
+     * ancestors that have no up-to-date output), or a render is still in
+     * flight, it is taken on the render thread, after a render the user
+     * started, and the image is shown once, when it is ready. Afterwards the layers below it are computed in the
+     * background until another layer is selected or another render takes over.
+     */
+    private void showCurrent() {
+        Layer l = stack.getCurrent();
+        if (l == null) return;
+        int index = stack.indexOf(l);
+        gui.showOptions();
+        cancelFill(false);
+        // the stack is only read here when no render can be changing it
+        if (!isRendering() && !stack.needsRender(index) && !l.isEvicted()) {
+            curImage = stack.getOutput(index);
+            gui.applyImage(curImage);
+            fillInBackground(index + 1);
+            return;
+        }
+        RenderMonitor monitor = new RenderMonitor(null);
+        filling = monitor;
+        fillTask = renderer.submit(() -> {
+            try {
+                ImagePair output = monitor.call(() -> stack.getOutput(index));
+                publish(monitor, () -> {
+                    this.curImage = output;
+                    gui.applyImage(output);
+                });
+                fill(monitor, index + 1);
+            } catch (CancellationException ex) {
+                // superseded
+            } catch (RuntimeException ex) {
+                failed(monitor, ex);
+            }
+        });
+    }
+
+    /**
+     * Computes the layers from {@code from} on that have no up-to-date
+     * output, on the render thread. Selecting another layer or any other
+     * render cancels it.
+     */
+    private void fillInBackground(int from) {
+        if (!needsFill(from)) return;
+        RenderMonitor monitor = new RenderMonitor(null);
+        filling = monitor;
+        fillTask = renderer.submit(() -> {
+            try {
+                fill(monitor, from);
+            } catch (CancellationException ex) {
+                // superseded
+            } catch (RuntimeException ex) {
+                failed(monitor, ex);
+            }
+        });
+    }
+
+    private void fill(RenderMonitor monitor, int from) {
+        int size = stack.getLayers().size();
+        monitor.call(() -> {
+            for (int i = from; i < size; i++) {
+                monitor.checkCancelled();
+                if (stack.needsRender(i)) {
+                    stack.getOutput(i);
+                }
+            }
+            return null;
+        });
+    }
+
+    private boolean needsFill(int from) {
+        int size = stack.getLayers().size();
+        for (int i = from; i < size; i++) {
+            if (stack.needsRender(i)) return true;
+        }
+        return false;
     }
 
 	public TextureGUI getGUI() {
@@ -0,0 +1,147 @@
+package com.beder.texture;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs per-pixel work over an image in square tiles on a shared fork/join
+ * pool. Each tile is handed to a {@link TileKernel} exactly once, so a kernel
+ * that only writes the pixels of its own tile produces the same result for
+ * any thread count.
+ *
+ * The pool size defaults to the number of processors and can be set with the
+ * {@code texture.threads} system property or {@link #setParallelism(int)}.
+ * The caller's {@link RenderMonitor} is checked before each tile, so a
+ * cancelled render stops after the tiles already running.
+ */
+public final class TileScheduler {
+    public static final int DEFAULT_TILE = 64;
+
+    /** Processes the half-open rectangle {@code [x0,x1) x [y0,y1)}. */
+    public interface TileKernel {
+        void run(int x0, int y0, int x1, int y1);
+    }
+
+    private static ForkJoinPool pool;
+    private static final Set<Thread> workers = Collections.newSetFromMap(new ConcurrentHashMap<Thread, Boolean>());
+    private static int parallelism = Integer.getInteger("texture.threads",
+            Runtime.getRuntime().availableProcessors());
+
+    private TileScheduler() {
+    }
+
+    /**
+     * Sets the number of worker threads. A value of 1 runs every tile on the
+     * calling thread.
+     */
+    public static synchronized void setParallelism(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Parallelism must be >= 1");
+        }
+        if (threads != parallelism) {
+            parallelism = threads;
+            if (pool != null) {
+                pool.shutdown();
+                pool = null;
+            }
+        }
+    }
+
+    public static synchronized int getParallelism() {
+        return parallelism;
+    }
+
+    private static synchronized ForkJoinPool sharedPool() {
+        if (pool == null) {
+            pool = new ForkJoinPool(parallelism, p -> {
+                ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+                workers.add(t);
+                return t;
+            }, null, false);
+        }
+        return pool;
+    }
+
+    /**
+     * @return the live worker threads, for {@link RenderMetrics}
+     */
+    static List<Thread> workerThreads() {
+        List<Thread> live = new ArrayList<Thread>();
+        for (Thread t : workers) {
+            if (t.isAlive()) {
+                live.add(t);
+            } else {
+                workers.remove(t);
+            }
+        }
+        return live;
+    }
+
+    public static void forEachTile(int width, int height, TileKernel kernel) {
+        forEachTile(width, height, DEFAULT_TILE, kernel);
+    }
+
+    /**
+     * Calls the kernel once for every {@code tile x tile} block (edge tiles
+     * are clipped) and returns when all of them are done.
+     */
+    public static void forEachTile(int width, int height, int tile, TileKernel kernel) {
+        int cols = (width + tile - 1) / tile;
+        int rows = (height + tile - 1) / tile;
+        boolean parallel = getParallelism() > 1 && cols * rows > 1;
+        TileTask task = new TileTask(kernel, RenderMonitor.current(), width, height, tile, cols, 0, cols * rows, parallel);
+        if (!parallel) {
+            task.compute();
+        } else if (ForkJoinTask.getPool() == sharedPool()) {
+            // already on one of our workers (nested call): join in place
+            task.invoke();
+        } else {
+            sharedPool().invoke(task);
+        }
+    }
+
+    /**
+     * Splits a range of tile indices in half until a single tile is left.
+     */
+    private static class TileTask extends RecursiveAction {
+        private final TileKernel kernel;
+        private final RenderMonitor monitor;
+        private final int width, height, tile, cols, lo, hi;
+        private final boolean split;
+
+        TileTask(TileKernel kernel, RenderMonitor monitor, int width, int height, int tile, int cols, int lo, int hi, boolean split) {
+            this.kernel = kernel;
+            this.monitor = monitor;
+            this.width = width;
+            this.height = height;
+            this.tile = tile;
+            this.cols = cols;
+            this.lo = lo;
+            this.hi = hi;
+            this.split = split;
+        }
+
+        @Override
+        protected void compute() {
+            if (split && hi - lo > 1) {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new TileTask(kernel, monitor, width, height, tile, cols, lo, mid, true),
+                          new TileTask(kernel, monitor, width, height, tile, cols, mid, hi, true));
+                return;
+            }
+            for (int t = lo; t < hi; t++) {
+                monitor.checkCancelled();
+                int x0 = (t % cols) * tile;
+                int y0 = (t / cols) * tile;
+                kernel.run(x0, y0, Math.min(x0 + tile, width), Math.min(y0 + tile, height));
+            }
+        }
+    }
+}
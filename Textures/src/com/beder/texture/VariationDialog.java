@@ -0,0 +1,212 @@
+package com.beder.texture;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Contact sheet of variations of the current layer: either a number of
+ * random seeds, or a grid over two of its parameters. The cells are rendered
+ * at reduced resolution in the background and fill in as they finish.
+ * Clicking a cell copies its parameters into the layer's controls and
+ * generates it at full resolution.
+ */
+public class VariationDialog extends JDialog {
+    private static final String SEEDS = "Seeds";
+    private static final String GRID = "Grid";
+    private static final String NONE = "(none)";
+    /** Cells are rendered at about this resolution. */
+    private static final int CELL_RES = 256;
+    private static final int CELL_SIZE = 128;
+
+    private final TextureGUI owner;
+    private final TextureGenius genius;
+    private final Operation op;
+    private final Parameters base;
+
+    private final JComboBox<String> modeBox;
+    private final JSpinner countSpinner;
+    private final JComboBox<String> paramA, paramB;
+    private final JTextField minA, maxA, minB, maxB;
+    private final JSpinner stepsA, stepsB;
+    private final JPanel sheet;
+    private List<Parameters> variants = new ArrayList<>();
+
+    public VariationDialog(TextureGUI owner, JFrame parent, TextureGenius genius) {
+        super(parent, "Variations", true);
+        this.owner = owner;
+        this.genius = genius;
+        this.op = genius.getCurrentOperation();
+        this.base = op.getUIParameters();
+
+        modeBox = new JComboBox<>();
+        if (!op.getSeedParameters().isEmpty()) {
+            modeBox.addItem(SEEDS);
+        }
+        modeBox.addItem(GRID);
+        countSpinner = new JSpinner(new SpinnerNumberModel(16, 4, 64, 4));
+
+        List<String> names = op.getParameterNames();
+        paramA = new JComboBox<>(names.toArray(new String[0]));
+        paramB = new JComboBox<>();
+        paramB.addItem(NONE);
+        for (String name : names) {
+            paramB.addItem(name);
+        }
+        if (names.size() > 1) {
+            paramB.setSelectedIndex(2);
+        }
+        minA = new JTextField(6);
+        maxA = new JTextField(6);
+        minB = new JTextField(6);
+        maxB = new JTextField(6);
+        stepsA = new JSpinner(new SpinnerNumberModel(4, 2, 8, 1));
+        stepsB = new JSpinner(new SpinnerNumberModel(4, 2, 8, 1));
+        paramA.addActionListener(e -> fillRange(paramA, minA, maxA));
+        paramB.addActionListener(e -> fillRange(paramB, minB, maxB));
+        fillRange(paramA, minA, maxA);
+        fillRange(paramB, minB, maxB);
+
+        JButton renderButton = new JButton("Render");
+        renderButton.addActionListener(e -> render());
+
+        JPanel seedRow = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        seedRow.add(new JLabel("Mode"));
+        seedRow.add(modeBox);
+        seedRow.add(new JLabel("Count"));
+        seedRow.add(countSpinner);
+        seedRow.add(renderButton);
+        JPanel rowA = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        rowA.add(new JLabel("Across"));
+        rowA.add(paramA);
+        rowA.add(minA);
+        rowA.add(new JLabel("to"));
+        rowA.add(maxA);
+        rowA.add(stepsA);
+        JPanel rowB = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        rowB.add(new JLabel("Down"));
+        rowB.add(paramB);
+        rowB.add(minB);
+        rowB.add(new JLabel("to"));
+        rowB.add(maxB);
+        rowB.add(stepsB);
+        JPanel controls = new JPanel(new GridLayout(0, 1));
+        controls.add(seedRow);
+        controls.add(rowA);
+        controls.add(rowB);
+
+        sheet = new JPanel();
+        getContentPane().setLayout(new BorderLayout(5, 5));
+        getContentPane().add(controls, BorderLayout.NORTH);
+        getContentPane().add(new JScrollPane(sheet), BorderLayout.CENTER);
+
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                genius.cancelRender(false);
+            }
+        });
+        setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+        setSize(4 * (2 * CELL_SIZE + 12) + 40, 720);
+        setLocationRelativeTo(parent);
+    }
+
+    /** Suggests half to twice the current value as the range. */
+    private void fillRange(JComboBox<String> box, JTextField min, JTextField max) {
+        String name = (String) box.getSelectedItem();
+        boolean enabled = name != null && !NONE.equals(name);
+        min.setEnabled(enabled);
+        max.setEnabled(enabled);
+        if (!enabled) return;
+        double v = base.get(name, 0);
+        if (v == 0) {
+            min.setText("0");
+            max.setText("1");
+        } else {
+            min.setText(String.format("%.2f", v / 2));
+            max.setText(String.format("%.2f", v * 2));
+        }
+    }
+
+    private void render() {
+        int columns;
+        try {
+            if (SEEDS.equals(modeBox.getSelectedItem())) {
+                int count = (Integer) countSpinner.getValue();
+                variants = VariationRenderer.seeds(base, op.getSeedParameters(), count, System.nanoTime());
+                columns = (int) Math.ceil(Math.sqrt(count));
+            } else {
+                String b = (String) paramB.getSelectedItem();
+                if (NONE.equals(b)) b = null;
+                columns = (Integer) stepsA.getValue();
+                variants = VariationRenderer.grid(base,
+                        (String) paramA.getSelectedItem(),
+                        Double.parseDouble(minA.getText()), Double.parseDouble(maxA.getText()), columns,
+                        b,
+                        b == null ? 0 : Double.parseDouble(minB.getText()),
+                        b == null ? 0 : Double.parseDouble(maxB.getText()),
+                        (Integer) stepsB.getValue());
+            }
+        } catch (NumberFormatException ex) {
+            JOptionPane.showMessageDialog(this, "Invalid range: " + ex.getMessage(),
+                    "Variations", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        sheet.removeAll();
+        sheet.setLayout(new GridLayout(0, columns, 5, 5));
+        // both halves per cell, like the main view: masks only write the right one
+        List<ImageView[]> cells = new ArrayList<>();
+        for (int i = 0; i < variants.size(); i++) {
+            Parameters p = variants.get(i);
+            ImageView[] halves = {new ImageView(CELL_SIZE), new ImageView(CELL_SIZE)};
+            JPanel cell = new JPanel(new GridLayout(1, 2, 2, 0));
+            for (ImageView half : halves) {
+                half.setToolTipText(describe(p));
+                half.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
+                half.addMouseListener(new MouseAdapter() {
+                    @Override
+                    public void mouseClicked(MouseEvent e) {
+                        adopt(p);
+                    }
+                });
+                cell.add(half);
+            }
+            cells.add(halves);
+            sheet.add(cell);
+        }
+        sheet.revalidate();
+        sheet.repaint();
+
+        int divisor = Math.max(1, genius.getRes() / CELL_RES);
+        List<Parameters> rendering = variants;
+        genius.renderVariations(rendering, divisor, (i, out) -> {
+            if (variants == rendering) {
+                cells.get(i)[0].setBuffer(out.getLeft());
+                cells.get(i)[1].setBuffer(out.getRight());
+            }
+        });
+    }
+
+    private String describe(Parameters p) {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Double> e : p.entrySet()) {
+            if (e.getValue().equals(base.get(e.getKey()))) continue;
+            if (sb.length() > 0) sb.append(", ");
+            sb.append(e.getKey()).append(" = ").append(String.format("%.2f", e.getValue()));
+        }
+        return sb.toString();
+    }
+
+    private void adopt(Parameters p) {
+        dispose();
+        op.setUIParameters(p);
+        owner.generate();
+    }
+}
@@ -0,0 +1,147 @@
+package com.beder.texture;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * Renders variations of one layer for a contact sheet: the layer's operation
+ * is run once per parameter set on the same input, at reduced resolution,
+ * with the variations spread over a thread pool. Small renders do not keep
+ * the tile scheduler busy on their own, so running several at once is what
+ * makes a sheet of 16-64 cells quick.
+ *
+ * Operations keep state while they run, so every variation gets its own
+ * instance, created through {@link Operation#create}.
+ */
+public final class VariationRenderer {
+    private static ExecutorService pool;
+
+    private VariationRenderer() {
+    }
+
+    private static synchronized ExecutorService pool() {
+        if (pool == null) {
+            AtomicInteger n = new AtomicInteger();
+            pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), r -> {
+                Thread t = new Thread(r, "texture-variation-" + n.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        return pool;
+    }
+
+    /**
+     * @return {@code count} copies of {@code base}, each with fresh random
+     *         values for the named seed parameters. The same {@code seed}
+     *         gives the same sheet.
+     */
+    public static List<Parameters> seeds(Parameters base, List<String> seedNames, int count, long seed) {
+        Random rnd = new Random(seed);
+        List<Parameters> out = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Parameters p = new Parameters();
+            p.putAll(base);
+            for (String name : seedNames) {
+                // the range the Random button uses
+                p.put(name, (double) rnd.nextInt(Integer.MAX_VALUE));
+            }
+            out.add(p);
+        }
+        return out;
+    }
+
+    /**
+     * @return copies of {@code base} over a grid: {@code a} runs from
+     *         {@code aMin} to {@code aMax} along each row in {@code aSteps}
+     *         steps, {@code b} from {@code bMin} to {@code bMax} down the rows.
+     *         With {@code b == null} there is a single row.
+     */
+    public static List<Parameters> grid(Parameters base, String a, double aMin, double aMax, int aSteps,
+                                        String b, double bMin, double bMax, int bSteps) {
+        if (b == null) bSteps = 1;
+        List<Parameters> out = new ArrayList<>(aSteps * bSteps);
+        for (int row = 0; row < bSteps; row++) {
+            for (int col = 0; col < aSteps; col++) {
+                Parameters p = new Parameters();
+                p.putAll(base);
+                p.put(a, step(aMin, aMax, col, aSteps));
+                if (b != null) {
+                    p.put(b, step(bMin, bMax, row, bSteps));
+                }
+                out.add(p);
+            }
+        }
+        return out;
+    }
+
+    private static double step(double min, double max, int i, int steps) {
+        return steps < 2 ? min : min + (max - min) * i / (steps - 1);
+    }
+
+    /**
+     * Runs {@code op}'s operation with every parameter set on {@code input}.
+     * Parameters given in pixels are scaled by {@code factor}, the input's
+     * resolution relative to the one they were chosen for.
+     *
+     * @param done called with the index and output of each variation as it
+     *             finishes, on a pool thread; may be {@code null}
+     * @return the outputs, in the order of {@code variants}
+     * @throws CancellationException if the {@link RenderMonitor} bound to the
+     *         calling thread is cancelled
+     */
+    public static List<ImagePair> render(Operation op, ImagePair input, List<Parameters> variants,
+                                         double factor, BiConsumer<Integer, ImagePair> done) {
+        RenderMonitor monitor = RenderMonitor.current();
+        String cls = op.getClass().getName();
+        input.contentHash(); // computed once here rather than by every worker
+        List<Future<ImagePair>> futures = new ArrayList<>(variants.size());
+        for (int i = 0; i < variants.size(); i++) {
+            int index = i;
+            Parameters par = variants.get(i);
+            ImagePair in = input.copy();
+            futures.add(pool().submit(() -> monitor.call(() -> {
+                monitor.checkCancelled();
+                Layer l;
+                try {
+                    l = new Layer(Operation.create(cls, null));
+                } catch (ReflectiveOperationException e) {
+                    throw new IllegalStateException("Cannot create operation " + cls, e);
+                }
+                l.setParam(par);
+                ImagePair out = l.preview(in, factor);
+                if (done != null) {
+                    done.accept(index, out);
+                }
+                return out;
+            })));
+        }
+        List<ImagePair> out = new ArrayList<>(variants.size());
+        try {
+            for (Future<ImagePair> f : futures) {
+                out.add(f.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new IllegalStateException(cause);
+        } finally {
+            for (Future<ImagePair> f : futures) {
+                f.cancel(false);
+            }
+        }
+        return out;
+    }
+}
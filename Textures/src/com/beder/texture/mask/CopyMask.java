@@ -27,7 +27,7 @@ public class CopyMask extends Operation {
 
 	@Override
 	public ImagePair executeOperation(ImagePair pair, Parameters par) {
-        pair.right =  copyOf(pair.left);
+        pair.setRight(pair.getLeft().share());
         return pair;
 	}
 
@@ -0,0 +1,224 @@
+package com.beder.texture.noise;
+
+import java.util.Arrays;
+
+/**
+ * Colours the cells of a diagram so that no two neighbours share a colour,
+ * aiming for four colours.
+ *
+ * Uses DSatur: the next cell coloured is the one whose neighbours already
+ * use the most distinct colours (ties to the higher degree, then the lower
+ * index), given the lowest colour its neighbours leave free. Each cell's used
+ * colours are a bitmask and the candidates sit in a heap keyed on
+ * (saturation, degree), so a colouring takes O((V + E) log V) time and no
+ * recursion.
+ *
+ * When a cell's neighbours already use all four colours, a Kempe chain swap
+ * is tried first: for a pair of colours (a, b), the a/b-coloured component
+ * reached from the cell's a-neighbours has its two colours exchanged, which
+ * frees a, provided that component holds none of the cell's b-neighbours.
+ * Only if no pair works does the cell get a fifth (or later) colour. Planar
+ * diagrams practically never need one; maps on a torus can.
+ */
+public final class CellColoring {
+    public static final int COLORS = 4;
+
+    private CellColoring() {
+    }
+
+    /**
+     * @param start     cell {@code i}'s neighbours are
+     *                  {@code adjacency[start[i]] .. adjacency[start[i+1]-1]};
+     *                  {@code start} has one entry more than there are cells
+     * @param adjacency neighbour indices, each edge listed from both ends
+     * @return the colour of every cell, from 0; below {@link #COLORS} unless
+     *         no four-colouring was found
+     */
+    public static int[] color(int[] start, int[] adjacency) {
+        int n = start.length - 1;
+        int[] color = new int[n];
+        Arrays.fill(color, -1);
+        int[] used = new int[n];
+        LongHeap heap = new LongHeap(n + 16);
+        for (int i = 0; i < n; i++) {
+            heap.push(key(0, start[i + 1] - start[i], i));
+        }
+        Kempe kempe = new Kempe(n);
+        while (!heap.isEmpty()) {
+            long k = heap.pop();
+            int v = node(k);
+            if (color[v] >= 0 || saturation(k) != Integer.bitCount(used[v])) {
+                continue; // stale entry
+            }
+            int c = Integer.numberOfTrailingZeros(~used[v]);
+            if (c >= COLORS) {
+                int freed = kempe.swap(v, start, adjacency, color);
+                if (freed >= 0) {
+                    c = freed;
+                    // the swapped cells changed colour: refresh the masks of
+                    // their uncoloured neighbours
+                    for (int s = 0; s < kempe.swapped; s++) {
+                        int u = kempe.queue[s];
+                        for (int e = start[u]; e < start[u + 1]; e++) {
+                            int w = adjacency[e];
+                            if (color[w] < 0 && w != v) {
+                                refresh(w, start, adjacency, color, used, heap);
+                            }
+                        }
+                    }
+                }
+            }
+            color[v] = c;
+            for (int e = start[v]; e < start[v + 1]; e++) {
+                int w = adjacency[e];
+                if (color[w] < 0 && c < 32 && (used[w] & (1 << c)) == 0) {
+                    used[w] |= 1 << c;
+                    heap.push(key(Integer.bitCount(used[w]), start[w + 1] - start[w], w));
+                }
+            }
+        }
+        return color;
+    }
+
+    private static void refresh(int w, int[] start, int[] adjacency, int[] color, int[] used, LongHeap heap) {
+        int mask = 0;
+        for (int e = start[w]; e < start[w + 1]; e++) {
+            int c = color[adjacency[e]];
+            if (c >= 0 && c < 32) mask |= 1 << c;
+        }
+        if (mask != used[w]) {
+            used[w] = mask;
+            heap.push(key(Integer.bitCount(mask), start[w + 1] - start[w], w));
+        }
+    }
+
+    /** Highest saturation, then highest degree, then lowest index first. */
+    private static long key(int saturation, int degree, int node) {
+        return ((long) saturation << 58) | ((long) Math.min(degree, 0x3FFFFFF) << 32) | (~node & 0xFFFFFFFFL);
+    }
+
+    private static int saturation(long key) {
+        return (int) (key >>> 58);
+    }
+
+    private static int node(long key) {
+        return ~(int) key;
+    }
+
+    /**
+     * Breadth-first search over two-coloured components, on arrays reused
+     * between attempts.
+     */
+    private static final class Kempe {
+        final int[] queue;
+        final int[] mark;
+        int stamp;
+        /** After a successful {@link #swap}, the swapped cells are {@code queue[0..swapped-1]}. */
+        int swapped;
+
+        Kempe(int n) {
+            queue = new int[n];
+            mark = new int[n];
+        }
+
+        /**
+         * @return the colour freed for {@code v}, or -1 if no swap frees one
+         */
+        int swap(int v, int[] start, int[] adjacency, int[] color) {
+            for (int a = 0; a < COLORS; a++) {
+                for (int b = 0; b < COLORS; b++) {
+                    if (a != b && trySwap(v, a, b, start, adjacency, color)) {
+                        return a;
+                    }
+                }
+            }
+            return -1;
+        }
+
+        private boolean trySwap(int v, int a, int b, int[] start, int[] adjacency, int[] color) {
+            if (++stamp == 0) {
+                Arrays.fill(mark, 0);
+                stamp = 1;
+            }
+            int tail = 0;
+            for (int e = start[v]; e < start[v + 1]; e++) {
+                int w = adjacency[e];
+                if (color[w] == a && mark[w] != stamp) {
+                    mark[w] = stamp;
+                    queue[tail++] = w;
+                }
+            }
+            for (int head = 0; head < tail; head++) {
+                int u = queue[head];
+                for (int e = start[u]; e < start[u + 1]; e++) {
+                    int w = adjacency[e];
+                    if (mark[w] == stamp || (color[w] != a && color[w] != b)) continue;
+                    if (color[w] == b && isNeighbour(v, w, start, adjacency)) {
+                        return false; // the chain links back to v through b
+                    }
+                    mark[w] = stamp;
+                    queue[tail++] = w;
+                }
+            }
+            for (int i = 0; i < tail; i++) {
+                int u = queue[i];
+                color[u] = color[u] == a ? b : a;
+            }
+            swapped = tail;
+            return true;
+        }
+
+        private static boolean isNeighbour(int v, int w, int[] start, int[] adjacency) {
+            for (int e = start[v]; e < start[v + 1]; e++) {
+                if (adjacency[e] == w) return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Binary max-heap of longs.
+     */
+    private static final class LongHeap {
+        private long[] heap;
+        private int size;
+
+        LongHeap(int capacity) {
+            heap = new long[Math.max(capacity, 16)];
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void push(long k) {
+            if (size == heap.length) {
+                heap = Arrays.copyOf(heap, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (heap[parent] >= k) break;
+                heap[i] = heap[parent];
+                i = parent;
+            }
+            heap[i] = k;
+        }
+
+        long pop() {
+            long top = heap[0];
+            long last = heap[--size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) break;
+                if (child + 1 < size && heap[child + 1] > heap[child]) child++;
+                if (heap[child] <= last) break;
+                heap[i] = heap[child];
+                i = child;
+            }
+            heap[i] = last;
+            return top;
+        }
+    }
+}
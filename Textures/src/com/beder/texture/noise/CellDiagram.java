@@ -0,0 +1,173 @@
+package com.beder.texture.noise;
+
+import java.util.Arrays;
+
+import com.beder.texture.TileScheduler;
+
+/**
+ * Renders a four-coloured cell diagram on a {@code res x res} torus: every
+ * pixel takes the colour of its nearest site, and neighbouring cells differ.
+ *
+ * The nearest-site pass writes a label raster (site index per pixel). Cells
+ * are neighbours if their labels meet across a pixel edge, including the
+ * edges where the image wraps, so the adjacency is exactly what is drawn.
+ * The scan runs per tile, each tile collecting its pairs in a primitive hash
+ * set, and the sets are merged into the index arrays {@link CellColoring}
+ * takes.
+ */
+public final class CellDiagram {
+    /** Colours 0-3; further colours, which the colouring rarely needs, are white. */
+    private static final int[] PALETTE = {
+        0xFF000000, // Black
+        0xFFFF0000, // Red
+        0xFF00FFFF, // Cyan
+        0xFF0000FF  // Blue
+    };
+
+    private CellDiagram() {
+    }
+
+    /**
+     * @return ARGB pixels of the coloured diagram of the given sites
+     */
+    public static int[] render(float[] xs, float[] ys, int res) {
+        int[] labels = labels(new SiteIndex(xs, ys, res), res);
+        int[][] graph = adjacency(labels, res, xs.length);
+        int[] colors = CellColoring.color(graph[0], graph[1]);
+        int[] px = new int[res * res];
+        TileScheduler.forEachTile(res, res, (x0, y0, x1, y1) -> {
+            for (int y = y0; y < y1; y++) {
+                for (int x = x0; x < x1; x++) {
+                    int c = colors[labels[y * res + x]];
+                    px[y * res + x] = c < PALETTE.length ? PALETTE[c] : 0xFFFFFFFF;
+                }
+            }
+        });
+        return px;
+    }
+
+    /**
+     * @return the index of the nearest site for every pixel, row by row
+     */
+    public static int[] labels(SiteIndex index, int res) {
+        int[] labels = new int[res * res];
+        TileScheduler.forEachTile(res, res, (x0, y0, x1, y1) -> {
+            SiteIndex.Hit hit = new SiteIndex.Hit();
+            for (int y = y0; y < y1; y++) {
+                for (int x = x0; x < x1; x++) {
+                    labels[y * res + x] = index.nearest(x, y, hit);
+                }
+            }
+        });
+        return labels;
+    }
+
+    /**
+     * Collects the pairs of cells that touch in a label raster, comparing
+     * every pixel with its right and lower neighbour, wrapping at the edges.
+     *
+     * @return {@code {start, adjacency}}: cell {@code i}'s neighbours are
+     *         {@code adjacency[start[i]] .. adjacency[start[i+1]-1]}, in
+     *         ascending order
+     */
+    public static int[][] adjacency(int[] labels, int res, int sites) {
+        LongSet pairs = new LongSet();
+        TileScheduler.forEachTile(res, res, (x0, y0, x1, y1) -> {
+            LongSet local = new LongSet();
+            for (int y = y0; y < y1; y++) {
+                int row = y * res;
+                int below = (y + 1 == res ? 0 : y + 1) * res;
+                for (int x = x0; x < x1; x++) {
+                    int a = labels[row + x];
+                    int right = labels[row + (x + 1 == res ? 0 : x + 1)];
+                    int down = labels[below + x];
+                    if (a != right) local.add(pair(a, right));
+                    if (a != down) local.add(pair(a, down));
+                }
+            }
+            synchronized (pairs) {
+                pairs.addAll(local);
+            }
+        });
+
+        long[] keys = pairs.toArray();
+        Arrays.sort(keys);
+        int[] start = new int[sites + 1];
+        for (long k : keys) {
+            start[(int) (k >>> 32) + 1]++;
+            start[(int) k + 1]++;
+        }
+        for (int i = 0; i < sites; i++) {
+            start[i + 1] += start[i];
+        }
+        int[] fill = Arrays.copyOf(start, sites);
+        int[] adjacency = new int[start[sites]];
+        // sorted pairs (low, high) leave every list in ascending order
+        for (long k : keys) {
+            int lo = (int) (k >>> 32), hi = (int) k;
+            adjacency[fill[hi]++] = lo;
+        }
+        for (long k : keys) {
+            int lo = (int) (k >>> 32), hi = (int) k;
+            adjacency[fill[lo]++] = hi;
+        }
+        return new int[][] {start, adjacency};
+    }
+
+    private static long pair(int a, int b) {
+        return a < b ? ((long) a << 32) | b : ((long) b << 32) | a;
+    }
+
+    /**
+     * Open-addressing set of non-negative longs.
+     */
+    private static final class LongSet {
+        private static final long EMPTY = -1;
+        private long[] table = newTable(64);
+        private int size;
+
+        private static long[] newTable(int capacity) {
+            long[] t = new long[capacity];
+            Arrays.fill(t, EMPTY);
+            return t;
+        }
+
+        void add(long k) {
+            int mask = table.length - 1;
+            int i = hash(k) & mask;
+            while (table[i] != EMPTY) {
+                if (table[i] == k) return;
+                i = (i + 1) & mask;
+            }
+            table[i] = k;
+            if (++size * 2 > table.length) {
+                long[] old = table;
+                table = newTable(old.length * 2);
+                size = 0;
+                for (long o : old) {
+                    if (o != EMPTY) add(o);
+                }
+            }
+        }
+
+        void addAll(LongSet other) {
+            for (long k : other.table) {
+                if (k != EMPTY) add(k);
+            }
+        }
+
+        long[] toArray() {
+            long[] out = new long[size];
+            int n = 0;
+            for (long k : table) {
+                if (k != EMPTY) out[n++] = k;
+            }
+            return out;
+        }
+
+        private static int hash(long k) {
+            k *= 0x9E3779B97F4A7C15L;
+            return (int) (k >>> 32);
+        }
+    }
+}
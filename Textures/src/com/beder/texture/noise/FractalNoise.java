@@ -0,0 +1,120 @@
+package com.beder.texture.noise;
+
+import com.beder.texture.Parameters;
+import com.beder.texture.PixelBuffer;
+import com.beder.texture.TileScheduler;
+
+/**
+ * Sums octaves of a base noise into a fractal: plain fBm, ridged or
+ * turbulence. Each octave is {@code lacunarity} times the frequency and
+ * {@code gain} times the amplitude of the one before. The sum is divided by
+ * the total amplitude and mapped from [-1,1] to [0,1].
+ *
+ * All octaves of a tile are evaluated in one pass over the tile's buffers,
+ * tiles running in parallel on {@link TileScheduler}. Small images are cut
+ * into smaller tiles so every worker gets some. The sum per pixel is formed
+ * in octave order whatever the tiling, so results do not depend on the
+ * thread count.
+ */
+public final class FractalNoise {
+    public static final String PARAM_LACUNARITY = "Lacunarity";
+    public static final String PARAM_GAIN = "Gain";
+    public static final String PARAM_RIDGED = "Ridged";
+    public static final String PARAM_TURBULENCE = "Turbulence";
+
+    public enum Mode {
+        /** Octaves summed as they are. */
+        FBM,
+        /** {@code 1 - |n|}, squared: sharp crests where the base crosses zero. */
+        RIDGED,
+        /** {@code |n|}: billowy, with creases at the zero crossings. */
+        TURBULENCE
+    }
+
+    /**
+     * A base noise that fills one octave of a tile.
+     */
+    public interface Basis {
+        /**
+         * Fills {@code out[j * w + i]} with the octave's value, roughly in
+         * [-1,1], at pixel {@code (x0 + i, y0 + j)}.
+         *
+         * @param octave     the octave number, from 0, e.g. to vary the seed
+         * @param multiplier {@code lacunarity^octave}: how much finer than the
+         *                   first octave this one is
+         */
+        void fill(int octave, double multiplier, int x0, int y0, int w, int h, double[] out);
+    }
+
+    private FractalNoise() {
+    }
+
+    /**
+     * @return the mode selected by the {@link #PARAM_RIDGED} and
+     *         {@link #PARAM_TURBULENCE} switches (ridged wins if both are on)
+     */
+    public static Mode mode(Parameters par) {
+        if (par.get(PARAM_RIDGED, 0) != 0) return Mode.RIDGED;
+        if (par.get(PARAM_TURBULENCE, 0) != 0) return Mode.TURBULENCE;
+        return Mode.FBM;
+    }
+
+    /**
+     * Renders {@code octaves} octaves of {@code basis} into a
+     * {@code res x res} grayscale buffer.
+     */
+    public static PixelBuffer render(int res, int octaves, double lacunarity, double gain, Mode mode, Basis basis) {
+        int count = Math.max(octaves, 1);
+        float[] plane = new float[res * res];
+        TileScheduler.forEachTile(res, res, tileSize(res), (x0, y0, x1, y1) -> {
+            int w = x1 - x0, h = y1 - y0, n = w * h;
+            double[] sum = new double[n];
+            double[] octave = new double[n];
+            double amplitude = 1, multiplier = 1, max = 0;
+            for (int o = 0; o < count; o++) {
+                basis.fill(o, multiplier, x0, y0, w, h, octave);
+                switch (mode) {
+                case RIDGED:
+                    for (int i = 0; i < n; i++) {
+                        double r = 1 - Math.abs(octave[i]);
+                        sum[i] += (2 * r * r - 1) * amplitude;
+                    }
+                    break;
+                case TURBULENCE:
+                    for (int i = 0; i < n; i++) {
+                        sum[i] += (2 * Math.abs(octave[i]) - 1) * amplitude;
+                    }
+                    break;
+                default:
+                    for (int i = 0; i < n; i++) {
+                        sum[i] += octave[i] * amplitude;
+                    }
+                }
+                max += amplitude;
+                amplitude *= gain;
+                multiplier *= lacunarity;
+            }
+            for (int j = 0; j < h; j++) {
+                int row = (y0 + j) * res + x0;
+                for (int i = 0; i < w; i++) {
+                    // Normalize from [-1,1] -> [0,1]
+                    plane[row + i] = (float) ((sum[j * w + i] / max + 1) * 0.5);
+                }
+            }
+        });
+        return PixelBuffer.ofGray(res, res, plane);
+    }
+
+    /**
+     * The default tile, halved (down to 16) until there are at least four
+     * tiles per worker.
+     */
+    static int tileSize(int res) {
+        int tile = TileScheduler.DEFAULT_TILE;
+        int wanted = 4 * TileScheduler.getParallelism();
+        while (tile > 16 && ((res + tile - 1) / tile) * ((res + tile - 1) / tile) < wanted) {
+            tile /= 2;
+        }
+        return tile;
+    }
+}
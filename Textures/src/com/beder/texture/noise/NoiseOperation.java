@@ -1,6 +1,5 @@
 package com.beder.texture.noise;
 
-import java.awt.image.BufferedImage;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Random;
@@ -12,64 +11,64 @@ import javax.swing.JTextField;
 import com.beder.texture.ImagePair;
 import com.beder.texture.Operation;
 import com.beder.texture.Parameters;
+import com.beder.texture.PixelBuffer;
 import com.beder.texture.Redrawable;
 
 public abstract class NoiseOperation extends Operation {
 
-        private BufferedImage result;
         private ImagePair input;
-	private Parameters lastPar;
 	private final static String PARAM_SEED = "Seed";
 
         public NoiseOperation(Redrawable r) {
                 super(r);
-                result = null;
-                lastPar = new Parameters();
                 long seed = new Random().nextInt(Integer.MAX_VALUE);
                 addParameter(PARAM_SEED, CONTROL_TYPE.SEED, seed);
-                // retrieve reference to the seed field for convenience
-                this.seedField = getSeedField();
         }
 
+    /**
+     * Declares the {@link FractalNoise} controls (lacunarity, gain, ridged,
+     * turbulence) for generators that sum octaves. The defaults give plain
+     * fBm with each octave twice the frequency and half the amplitude.
+     */
+	protected void addFractalParameters() {
+		addParameter(FractalNoise.PARAM_LACUNARITY, CONTROL_TYPE.DOUBLE, 2.0);
+		addParameter(FractalNoise.PARAM_GAIN, CONTROL_TYPE.DOUBLE, 0.5);
+		addParameter(FractalNoise.PARAM_RIDGED, CONTROL_TYPE.BOOLEAN, 0);
+		addParameter(FractalNoise.PARAM_TURBULENCE, CONTROL_TYPE.BOOLEAN, 0);
+	}
+
+	/**
+	 * Renders {@code octaves} octaves of {@code basis} at the current
+	 * resolution with the fractal settings in {@code par}.
+	 */
+	protected PixelBuffer fractal(Parameters par, int octaves, FractalNoise.Basis basis) {
+		return FractalNoise.render(getRes(), octaves,
+				par.get(FractalNoise.PARAM_LACUNARITY, 2.0),
+				par.get(FractalNoise.PARAM_GAIN, 0.5),
+				FractalNoise.mode(par), basis);
+	}
+
     /**
      * Called by child class to add random seed controls on the edit panel
      */
 	
-	public abstract BufferedImage generateNoise(Parameters par, long seed);
+	public abstract PixelBuffer generateNoise(Parameters par, long seed);
 	
     /**
-     * Overriding executeOperation() for Noise values. This will call a new function, generateNoise() instead
-     *   if the image needs to be refreshed. It will call getParameters() to get a list of current
-     *   parameters to check against historical
+     * Overriding executeOperation() for Noise values. This will call a new function, generateNoise(),
+     *   and place its result in the left image. Results are memoized per layer by {@link com.beder.texture.LayerCache},
+     *   which also takes the input image into account.
      */
 	@Override
 	public final ImagePair executeOperation(ImagePair input, Parameters par) {
-	    // 1) If we've never generated a result yet, force a refresh.
-	    boolean needsRefresh = (result == null);
 	    this.input = input;
-
-	    // 2) Or if any parameter is new or has changed, refresh.
-	    for (String key : par.keySet()) {
-	        double curr = par.get(key);
-	        // lastPar.containsKey tells us if it's new;
-	        // lastPar.get(key, NaN) gives the old value (NaN if missing)
-	        double prev = lastPar.get(key, Double.NaN);
-	        if (!lastPar.containsKey(key) || curr != prev) {
-	            needsRefresh = true;
-	            break;
-	        }
-	    }
-
-	    if (needsRefresh) {
-	        // regenerate and cache both result and parameters
-	    	long seed = (long) par.get(PARAM_SEED, new Random().nextLong());
-	        result = generateNoise(par, seed);
-	        lastPar.clear();
-	        lastPar.putAll(par);
+	    try {
+	        long seed = (long) par.get(PARAM_SEED, new Random().nextLong());
+	        input.setLeft(generateNoise(par, seed));
+	        return input;
+	    } finally {
+	        this.input = null; // don't keep the pair alive after the render
 	    }
-
-	    input.left = result;
-	    return input;
 	}
 
         public long getSeed() {
@@ -84,9 +83,19 @@ public abstract class NoiseOperation extends Operation {
                 }
         }
 
+	/**
+	 * @return the pair being rendered; only valid inside {@link #generateNoise}
+	 */
 	public ImagePair getInput() {
 		return input;
 	}
+
+	/**
+	 * @return the resolution of the pair currently being rendered
+	 */
+	protected int getRes() {
+		return input.getRes();
+	}
 	
 	
 }
@@ -1,7 +1,6 @@
 package com.beder.texture.noise;
 
 import java.awt.FlowLayout;
-import java.awt.image.BufferedImage;
 import java.util.Random;
 
 import javax.swing.BorderFactory;
@@ -10,6 +9,7 @@ import javax.swing.JPanel;
 import javax.swing.JTextField;
 
 import com.beder.texture.Parameters;
+import com.beder.texture.PixelBuffer;
 import com.beder.texture.Redrawable;
 
 /**
@@ -24,12 +24,13 @@ public class PerlinNoiseGenerator extends NoiseOperation {
         super(redraw);
         addParameter(PARAM_FREQ, CONTROL_TYPE.INT, 4);
         addParameter(PARAM_ITER, CONTROL_TYPE.INT, 4);
+        addFractalParameters();
     }
 
 
     @Override
-    public BufferedImage generateNoise(Parameters par, long seed) {
-        int res = getRedraw().getRes();
+    public PixelBuffer generateNoise(Parameters par, long seed) {
+        int res = getRes();
         double baseFreq = par.get(PARAM_FREQ, 4);
         int iterations = (int) par.get(PARAM_ITER, 4);
  
@@ -48,27 +49,16 @@ public class PerlinNoiseGenerator extends NoiseOperation {
         for (int i = 0; i < 512; i++) p[i] = perm[i & 255];
 
         // Generate multi‑octave Perlin noise
-        BufferedImage img = new BufferedImage(res, res, BufferedImage.TYPE_INT_ARGB);
-        for (int y = 0; y < res; y++) {
-            for (int x = 0; x < res; x++) {
-                double amplitude = 1.0, frequency = baseFreq;
-                double sum = 0, max = 0;
-                for (int o = 0; o < iterations; o++) {
-                    double nx = x * frequency / res, ny = y * frequency / res;
-                    double n = perlin(nx, ny, p);
-                    sum += n * amplitude;
-                    max += amplitude;
-                    amplitude *= 0.5;
-                    frequency *= 2.0;
+        return fractal(par, iterations, (o, multiplier, x0, y0, w, h, out) -> {
+            double frequency = baseFreq * multiplier;
+            for (int j = 0; j < h; j++) {
+                int y = y0 + j;
+                for (int i = 0; i < w; i++) {
+                    int x = x0 + i;
+                    out[j * w + i] = perlin(x * frequency / res, y * frequency / res, p);
                 }
-                // Normalize to [0,255]
-                double v = (sum / max + 1) * 0.5;
-                int gray = (int)(v * 255);
-                int color = 0xFF000000 | (gray<<16) | (gray<<8) | gray;
-                img.setRGB(x, y, color);
             }
-        }
-        return img;
+        });
     }
 
     private double perlin(double x, double y, int[] p) {
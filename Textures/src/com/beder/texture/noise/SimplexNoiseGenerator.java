@@ -2,7 +2,6 @@ package com.beder.texture.noise;
 
 import java.awt.BorderLayout;
 import java.awt.FlowLayout;
-import java.awt.image.BufferedImage;
 import java.util.Map;
 import java.util.TreeMap;
 
@@ -14,6 +13,7 @@ import javax.swing.JTextField;
 import com.beder.texture.ImagePair;
 import com.beder.texture.Operation;
 import com.beder.texture.Parameters;
+import com.beder.texture.PixelBuffer;
 import com.beder.texture.Redrawable;
 import com.beder.util.OpenSimplex2S;
 
@@ -30,32 +30,40 @@ public class SimplexNoiseGenerator extends NoiseOperation {
 
 	private final OpenSimplex2S noise;
 	private final static String PARAM_SCALE = "Scale";
+	private final static String PARAM_OCTAVES = "Octaves";
+	/** Per worker thread: one tile of one octave, before it is widened into the engine's buffer. */
+	private static final ThreadLocal<float[]> SCRATCH = ThreadLocal.withInitial(() -> new float[0]);
 
 	public SimplexNoiseGenerator(Redrawable r) {
 		super(r);
 		this.noise = new OpenSimplex2S();
 		
 		addParameter(PARAM_SCALE, Operation.CONTROL_TYPE.INT, 200);
+		addParameter(PARAM_OCTAVES, Operation.CONTROL_TYPE.INT, 1);
+		addFractalParameters();
 	}
 
 
+	/**
+	 * Octave {@code o} uses seed {@code seed + o} and the scale divided by
+	 * {@code lacunarity^o}; a single octave is plain OpenSimplex noise.
+	 */
 	@Override
-	public BufferedImage generateNoise(Parameters par, long seed) {
+	public PixelBuffer generateNoise(Parameters par, long seed) {
 		double scale = par.get(PARAM_SCALE, 200);
-		int res = getRedraw().getRes();
-		
-		BufferedImage img = new BufferedImage(res, res, BufferedImage.TYPE_INT_ARGB);
-		for (int y = 0; y < res; y++) {
-			for (int x = 0; x < res; x++) {
-				double val = noise(x / scale, y / scale, seed);
-				// Normalize from [-1,1] -> [0,1]
-				val = (val + 1) / 2.0;
-				int gray = (int) (val * 255);
-				int color = 0xFF000000 | (gray << 16) | (gray << 8) | gray;
-				img.setRGB(x, y, color);
+		int octaves = (int) par.get(PARAM_OCTAVES, 1);
+		return fractal(par, octaves, (o, multiplier, x0, y0, w, h, out) -> {
+			int n = w * h;
+			float[] buf = SCRATCH.get();
+			if (buf.length < n) {
+				buf = new float[n];
+				SCRATCH.set(buf);
+			}
+			OpenSimplex2S.noise2Region(seed + o, x0, y0, w, h, scale / multiplier, buf, 0, w);
+			for (int i = 0; i < n; i++) {
+				out[i] = buf[i];
 			}
-		}
-		return img;
+		});
 	}
 
 	
@@ -64,9 +72,14 @@ public class SimplexNoiseGenerator extends NoiseOperation {
 		return OpenSimplex2S.noise2(seed, x, y);
 	}
 
+	@Override
+	public Parameters scaleParameters(Parameters par, double factor) {
+		return scale(par, factor, PARAM_SCALE);
+	}
+
 	@Override
 	public String getDescription() {
-		return "Generates a grayscale noise image using the OpenSimplex algorithm";
+		return "Generates a grayscale noise image using the OpenSimplex algorithm, optionally as a multi-octave fractal";
 	}
 
 	@Override
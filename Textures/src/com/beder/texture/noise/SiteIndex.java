@@ -0,0 +1,170 @@
+package com.beder.texture.noise;
+
+/**
+ * Uniform grid over the sites of a cell diagram on a {@code size x size}
+ * torus, answering nearest and second-nearest site queries.
+ *
+ * The grid has about two sites per cell. A query searches square rings of
+ * cells around the query point, outwards, and stops once no site in a ring
+ * further out can be closer than the ones found; for evenly spread sites that
+ * is one or two rings whatever the number of sites. Distances are compared
+ * squared and measured the short way round the torus, as
+ * {@code |site - p|}, or {@code size - |site - p|} when that is shorter.
+ * Ties go to the lower site index.
+ *
+ * The index is immutable and may be queried from several threads.
+ */
+public final class SiteIndex {
+    private final int size, grid;
+    private final double cellSize;
+    /** Sites sorted by cell: cell {@code c} holds {@code start[c]..start[c+1]-1}. */
+    private final int[] start, ids;
+    private final float[] xs, ys;
+
+    /**
+     * The result of {@link #nearest2}: site indices and squared distances.
+     */
+    public static final class Hit {
+        public int first = -1, second = -1;
+        public double firstDist2, secondDist2;
+    }
+
+    /**
+     * @param x    site x coordinates; sites outside {@code [0,size)} wrap
+     * @param y    site y coordinates
+     * @param size the torus size, normally the image resolution
+     */
+    public SiteIndex(float[] x, float[] y, int size) {
+        int n = x.length;
+        if (n == 0 || y.length != n) {
+            throw new IllegalArgumentException("Need matching, non-empty site coordinates");
+        }
+        this.size = size;
+        this.grid = Math.max(1, Math.min(size, (int) Math.sqrt(n / 2.0)));
+        this.cellSize = (double) size / grid;
+
+        int[] cellOf = new int[n];
+        start = new int[grid * grid + 1];
+        for (int i = 0; i < n; i++) {
+            cellOf[i] = cell(y[i]) * grid + cell(x[i]);
+            start[cellOf[i] + 1]++;
+        }
+        for (int c = 0; c < grid * grid; c++) {
+            start[c + 1] += start[c];
+        }
+        ids = new int[n];
+        xs = new float[n];
+        ys = new float[n];
+        int[] fill = new int[grid * grid];
+        for (int i = 0; i < n; i++) {
+            int k = start[cellOf[i]] + fill[cellOf[i]]++;
+            ids[k] = i;
+            xs[k] = x[i];
+            ys[k] = y[i];
+        }
+    }
+
+    /**
+     * @return the number of sites
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * @return the index of the site nearest to {@code (px, py)}
+     */
+    public int nearest(float px, float py) {
+        return nearest(px, py, new Hit());
+    }
+
+    /**
+     * As {@link #nearest(float, float)}, filling {@code first} and
+     * {@code firstDist2} of a reusable {@code out}.
+     */
+    public int nearest(float px, float py, Hit out) {
+        search(px, py, out, false);
+        return out.first;
+    }
+
+    /**
+     * Finds the nearest and second-nearest sites to {@code (px, py)}. With a
+     * single site, {@code second} is -1 and {@code secondDist2} infinite.
+     *
+     * @param out receives the result; reusing one per thread avoids garbage
+     */
+    public void nearest2(float px, float py, Hit out) {
+        search(px, py, out, true);
+    }
+
+    private void search(float px, float py, Hit out, boolean two) {
+        out.first = out.second = -1;
+        out.firstDist2 = out.secondDist2 = Double.POSITIVE_INFINITY;
+        int cx = cell(px), cy = cell(py);
+        // rings up to maxRing reach distinct cells; beyond that they wrap
+        // onto cells already searched
+        int maxRing = (grid - 1) / 2;
+        for (int r = 0; r <= maxRing; r++) {
+            if (r == 0) {
+                scan(cy * grid + cx, px, py, out, two);
+            } else {
+                for (int d = -r; d <= r; d++) {
+                    int gx = wrap(cx + d);
+                    scan(wrap(cy - r) * grid + gx, px, py, out, two);
+                    scan(wrap(cy + r) * grid + gx, px, py, out, two);
+                }
+                for (int d = -r + 1; d < r; d++) {
+                    int gy = wrap(cy + d) * grid;
+                    scan(gy + wrap(cx - r), px, py, out, two);
+                    scan(gy + wrap(cx + r), px, py, out, two);
+                }
+            }
+            // anything in ring r + 1 is at least r cells away on one axis
+            double bound = r * cellSize;
+            if ((two ? out.secondDist2 : out.firstDist2) <= bound * bound) return;
+        }
+        if (2 * maxRing + 1 < grid) {
+            // an even grid leaves one row and column the rings never
+            // reached: fall back to every site
+            out.first = out.second = -1;
+            out.firstDist2 = out.secondDist2 = Double.POSITIVE_INFINITY;
+            for (int c = 0; c < grid * grid; c++) {
+                scan(c, px, py, out, two);
+            }
+        }
+    }
+
+    private void scan(int c, float px, float py, Hit out, boolean two) {
+        double half = size / 2.0;
+        for (int k = start[c], end = start[c + 1]; k < end; k++) {
+            double dx = Math.abs(xs[k] - px);
+            if (dx > half) dx = size - dx;
+            double dy = Math.abs(ys[k] - py);
+            if (dy > half) dy = size - dy;
+            double d = dx * dx + dy * dy;
+            int id = ids[k];
+            if (d < out.firstDist2 || (d == out.firstDist2 && id < out.first)) {
+                if (two) {
+                    out.second = out.first;
+                    out.secondDist2 = out.firstDist2;
+                }
+                out.first = id;
+                out.firstDist2 = d;
+            } else if (two && (d < out.secondDist2 || (d == out.secondDist2 && id < out.second))) {
+                out.second = id;
+                out.secondDist2 = d;
+            }
+        }
+    }
+
+    private int cell(float v) {
+        double w = v % size;
+        if (w < 0) w += size;
+        int c = (int) (w / cellSize);
+        return c >= grid ? grid - 1 : c;
+    }
+
+    private int wrap(int c) {
+        return c < 0 ? c + grid : c >= grid ? c - grid : c;
+    }
+}
@@ -0,0 +1,315 @@
+package com.beder.texture.noise;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import com.beder.texture.TileScheduler;
+
+/**
+ * The cellular automaton behind {@link VegetationNoiseGenerator}, on a
+ * {@code res x res} torus.
+ *
+ * Each cycle a live cell survives with probability
+ * {@code 1 - death * (1 - fertility)}, and a dead cell with at least one live
+ * neighbour (of eight) sprouts with probability {@code fertility * growth}.
+ *
+ * The state is one bit per cell, 64 cells to a {@code long}, rows padded to
+ * whole words. Which dead cells have a live neighbour is worked out a word at
+ * a time with shifts, and only those and the live cells draw a random number.
+ * Rows of words are updated in parallel on {@link TileScheduler}. The random
+ * numbers come from a hash of (seed, cycle, x, y) rather than a sequential
+ * generator, so the result is the same for any thread count and any order of
+ * evaluation.
+ *
+ * While life is sparse, as at the start of a run from a few seeds, the grid
+ * is handled in blocks of 64 x 64 cells (one word by 64 rows) with an
+ * occupancy map: a cycle only visits blocks that hold live cells or touch
+ * one, and clears blocks that have died out. Growth spreads one cell per
+ * cycle, so nothing can happen anywhere else. Once more than
+ * {@link #DENSE_SHARE} of the blocks need visiting the cycle is a plain sweep
+ * over all rows instead, and the map is rebuilt from the result, so the mode
+ * can switch back if the vegetation thins out again.
+ */
+final class VegetationAutomaton {
+    /** Rows of words per tile; a tile is at most 16 x 64 = 1024 cells wide. */
+    private static final int TILE = 16;
+    /** Share of blocks to visit above which a full sweep is cheaper. */
+    static final double DENSE_SHARE = 0.5;
+
+    private final int res, words;
+    private final long lastMask;
+    private final float[] fertility;
+    private final double growth, death;
+    private final long seed;
+    private final int blocksY;
+    private long[] current, next;
+    /** Per block of {@code current} / {@code next}: holds a live cell. */
+    private boolean[] occupied, occupiedNext;
+    /** Scratch: blocks to visit this cycle. */
+    private final boolean[] visit;
+    private final int[] visitList;
+    private int cycle;
+    private boolean lastDense;
+
+    /**
+     * @param fertility {@code res * res} values in [0,1], row by row
+     */
+    VegetationAutomaton(int res, float[] fertility, double growth, double death, long seed) {
+        this.res = res;
+        this.words = (res + 63) >>> 6;
+        int tail = res & 63;
+        this.lastMask = tail == 0 ? -1L : (1L << tail) - 1;
+        this.fertility = fertility;
+        this.growth = growth;
+        this.death = death;
+        this.seed = seed;
+        this.current = new long[words * res];
+        this.next = new long[words * res];
+        this.blocksY = (res + 63) >>> 6;
+        this.occupied = new boolean[words * blocksY];
+        this.occupiedNext = new boolean[words * blocksY];
+        this.visit = new boolean[words * blocksY];
+        this.visitList = new int[words * blocksY];
+    }
+
+    /**
+     * Brings {@code count} cells to life at positions drawn from {@code rand}.
+     */
+    void plant(Random rand, int count) {
+        for (int i = 0; i < count; i++) {
+            int x = rand.nextInt(res);
+            int y = rand.nextInt(res);
+            current[y * words + (x >>> 6)] |= 1L << x;
+            occupied[(y >>> 6) * words + (x >>> 6)] = true;
+        }
+    }
+
+    /**
+     * @return the number of cycles run so far
+     */
+    int getCycle() {
+        return cycle;
+    }
+
+    /**
+     * A copy of the state after some number of cycles, from which a run with
+     * the same settings can be continued exactly.
+     */
+    static final class State {
+        final int cycle;
+        private final long[] cells;
+        private final boolean[] occupied;
+
+        private State(int cycle, long[] cells, boolean[] occupied) {
+            this.cycle = cycle;
+            this.cells = cells;
+            this.occupied = occupied;
+        }
+
+        long getByteSize() {
+            return 8L * cells.length + occupied.length;
+        }
+    }
+
+    /**
+     * @return a copy of the current state
+     */
+    State snapshot() {
+        return new State(cycle, current.clone(), occupied.clone());
+    }
+
+    /**
+     * Continues from {@code state}, which must come from an automaton with
+     * the same size, fertility, rates and seed.
+     */
+    void restore(State state) {
+        if (state.cells.length != current.length) {
+            throw new IllegalArgumentException("State is for a different resolution");
+        }
+        System.arraycopy(state.cells, 0, current, 0, current.length);
+        System.arraycopy(state.occupied, 0, occupied, 0, occupied.length);
+        cycle = state.cycle;
+    }
+
+    /**
+     * @return true if the last cycle was a full sweep rather than a visit of
+     *         the occupied blocks
+     */
+    boolean wasDense() {
+        return lastDense;
+    }
+
+    /**
+     * Runs one cycle.
+     */
+    void step() {
+        int count = collectBlocks();
+        lastDense = count > DENSE_SHARE * visit.length;
+        if (lastDense) {
+            sweep();
+        } else {
+            stepBlocks(count);
+        }
+        long[] t = current;
+        current = next;
+        next = t;
+        boolean[] o = occupied;
+        occupied = occupiedNext;
+        occupiedNext = o;
+        cycle++;
+    }
+
+    /**
+     * Fills {@link #visitList} with the occupied blocks and their eight
+     * neighbours (wrapping).
+     *
+     * @return the number of blocks listed
+     */
+    private int collectBlocks() {
+        Arrays.fill(visit, false);
+        for (int by = 0; by < blocksY; by++) {
+            for (int bx = 0; bx < words; bx++) {
+                if (!occupied[by * words + bx]) continue;
+                for (int dy = -1; dy <= 1; dy++) {
+                    int ny = Math.floorMod(by + dy, blocksY);
+                    for (int dx = -1; dx <= 1; dx++) {
+                        visit[ny * words + Math.floorMod(bx + dx, words)] = true;
+                    }
+                }
+            }
+        }
+        int count = 0;
+        for (int b = 0; b < visit.length; b++) {
+            if (visit[b]) visitList[count++] = b;
+        }
+        return count;
+    }
+
+    /** Updates every row and rebuilds the occupancy map of the result. */
+    private void sweep() {
+        long[] src = current, dst = next;
+        boolean[] occ = occupiedNext;
+        int c = cycle;
+        Arrays.fill(occ, false);
+        TileScheduler.forEachTile(words, res, TILE, (w0, y0, w1, y1) -> {
+            for (int y = y0; y < y1; y++) {
+                int up = (y == 0 ? res - 1 : y - 1) * words;
+                int row = y * words;
+                int down = (y == res - 1 ? 0 : y + 1) * words;
+                for (int w = w0; w < w1; w++) {
+                    long v = update(src, c, y, w, up, row, down);
+                    dst[row + w] = v;
+                    if (v != 0) occ[(y >>> 6) * words + w] = true;
+                }
+            }
+        });
+    }
+
+    /**
+     * Updates the listed blocks, one task each, and clears blocks of the
+     * target that are not visited but still hold cells from two cycles ago.
+     */
+    private void stepBlocks(int count) {
+        long[] src = current, dst = next;
+        boolean[] occ = occupiedNext;
+        int c = cycle;
+        // the "image" here is the list of blocks, one column per block
+        TileScheduler.forEachTile(count, 1, 1, (i0, unused0, i1, unused1) -> {
+            for (int i = i0; i < i1; i++) {
+                int b = visitList[i];
+                int w = b % words;
+                int y0 = (b / words) << 6, y1 = Math.min(y0 + 64, res);
+                boolean any = false;
+                for (int y = y0; y < y1; y++) {
+                    int up = (y == 0 ? res - 1 : y - 1) * words;
+                    int row = y * words;
+                    int down = (y == res - 1 ? 0 : y + 1) * words;
+                    long v = update(src, c, y, w, up, row, down);
+                    dst[row + w] = v;
+                    any |= v != 0;
+                }
+                occ[b] = any;
+            }
+        });
+        for (int b = 0; b < visit.length; b++) {
+            if (visit[b] || !occ[b]) continue;
+            int w = b % words;
+            int y0 = (b / words) << 6, y1 = Math.min(y0 + 64, res);
+            for (int y = y0; y < y1; y++) {
+                dst[y * words + w] = 0;
+            }
+            occ[b] = false;
+        }
+    }
+
+    private long update(long[] g, int c, int y, int w, int up, int row, int down) {
+        long alive = g[row + w];
+        long near = left(g, up, w) | g[up + w] | right(g, up, w)
+                | left(g, row, w) | right(g, row, w)
+                | left(g, down, w) | g[down + w] | right(g, down, w);
+        long candidates = alive | near;
+        if (w == words - 1) candidates &= lastMask;
+        long out = 0;
+        int base = w << 6;
+        while (candidates != 0) {
+            int bit = Long.numberOfTrailingZeros(candidates);
+            candidates &= candidates - 1;
+            int x = base + bit;
+            double fert = fertility[y * res + x];
+            double u = random(seed, c, x, y);
+            boolean live = (alive >>> bit & 1) != 0
+                    ? u < 1 - death * (1 - fert)
+                    : u < fert * growth;
+            if (live) out |= 1L << bit;
+        }
+        return out;
+    }
+
+    /** Word {@code w} of the row at {@code row}, shifted so bit x holds cell x - 1. */
+    private long left(long[] g, int row, int w) {
+        long carry = w == 0
+                ? g[row + words - 1] >>> ((res - 1) & 63)
+                : g[row + w - 1] >>> 63;
+        long v = g[row + w] << 1 | (carry & 1);
+        return w == words - 1 ? v & lastMask : v;
+    }
+
+    /** Word {@code w} of the row at {@code row}, shifted so bit x holds cell x + 1. */
+    private long right(long[] g, int row, int w) {
+        if (w == words - 1) {
+            return g[row + w] >>> 1 | (g[row] & 1) << ((res - 1) & 63);
+        }
+        return g[row + w] >>> 1 | g[row + w + 1] << 63;
+    }
+
+    /**
+     * @return 255 for live cells and 0 for dead ones, row by row
+     */
+    byte[] toGray() {
+        byte[] out = new byte[res * res];
+        for (int y = 0; y < res; y++) {
+            for (int x = 0; x < res; x++) {
+                if ((current[y * words + (x >>> 6)] >>> x & 1) != 0) {
+                    out[y * res + x] = (byte) 255;
+                }
+            }
+        }
+        return out;
+    }
+
+    /**
+     * @return a uniform value in [0,1) determined by its arguments alone
+     */
+    static double random(long seed, int cycle, int x, int y) {
+        long h = mix(seed * 0x9E3779B97F4A7C15L + cycle);
+        h = mix(h + (((long) y << 32) | (x & 0xFFFFFFFFL)));
+        return (h >>> 11) * 0x1.0p-53;
+    }
+
+    /** The SplitMix64 finalizer. */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,78 @@
+package com.beder.texture.noise;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Saved states of Vegetation runs, so that changing only the number of
+ * iterations continues from the nearest earlier state instead of starting
+ * over.
+ *
+ * States are grouped per run, keyed by everything except the iteration count
+ * (resolution, seed, fertility, rates). The two most recently used runs are
+ * kept, typically a preview and a full render. Each run holds up to
+ * {@link #MAX_PER_RUN} states, fewer if they would take more than
+ * {@link #BUDGET} bytes; when one more is added, the state closest to the one
+ * before it goes, so the survivors stay spread over the run and lowering the
+ * count is cheap too. The latest state always stays.
+ */
+final class VegetationCheckpoints {
+    static final int MAX_PER_RUN = 8;
+    /** Bytes of state kept per run. */
+    static final long BUDGET = 64L << 20;
+    private static final int RUNS = 2;
+
+    private final Map<String, TreeMap<Integer, VegetationAutomaton.State>> runs =
+            new LinkedHashMap<String, TreeMap<Integer, VegetationAutomaton.State>>(4, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, TreeMap<Integer, VegetationAutomaton.State>> e) {
+                    return size() > RUNS;
+                }
+            };
+
+    /**
+     * @return the latest state of run {@code key} at or before
+     *         {@code cycle}, or {@code null}
+     */
+    synchronized VegetationAutomaton.State latest(String key, int cycle) {
+        TreeMap<Integer, VegetationAutomaton.State> states = runs.get(key);
+        if (states == null) return null;
+        Map.Entry<Integer, VegetationAutomaton.State> e = states.floorEntry(cycle);
+        return e == null ? null : e.getValue();
+    }
+
+    synchronized void put(String key, VegetationAutomaton.State state) {
+        TreeMap<Integer, VegetationAutomaton.State> states = runs.get(key);
+        if (states == null) {
+            states = new TreeMap<>();
+            runs.put(key, states);
+        }
+        states.put(state.cycle, state);
+        long limit = Math.max(2, Math.min(MAX_PER_RUN, BUDGET / Math.max(1, state.getByteSize())));
+        while (states.size() > limit) {
+            // drop the state with the smallest gap to its predecessor,
+            // never the latest
+            int drop = -1, smallest = Integer.MAX_VALUE, prev = 0;
+            Iterator<Integer> it = states.keySet().iterator();
+            for (int i = 0; i < states.size() - 1; i++) {
+                int c = it.next();
+                if (c - prev < smallest) {
+                    smallest = c - prev;
+                    drop = c;
+                }
+                prev = c;
+            }
+            states.remove(drop);
+        }
+    }
+
+    /**
+     * @return the number of states kept for run {@code key}
+     */
+    synchronized int size(String key) {
+        TreeMap<Integer, VegetationAutomaton.State> states = runs.get(key);
+        return states == null ? 0 : states.size();
+    }
+}
@@ -1,15 +1,11 @@
 package com.beder.texture.noise;
 
-import java.awt.FlowLayout;
-import java.awt.image.BufferedImage;
 import java.util.Random;
 
-import javax.swing.JLabel;
-import javax.swing.JPanel;
-import javax.swing.JTextField;
-
 import com.beder.texture.Parameters;
+import com.beder.texture.PixelBuffer;
 import com.beder.texture.Redrawable;
+import com.beder.texture.RenderMonitor;
 
 public class VegetationNoiseGenerator extends NoiseOperation {
 	
@@ -17,6 +13,9 @@ public class VegetationNoiseGenerator extends NoiseOperation {
 	private final static String PARAM_GROWTH = "Growth";
 	private final static String PARAM_DEATH = "Death";
 	private final static String PARAM_ITER = "Iterations";
+
+	/** States of recent runs, to continue from when only Iterations changes. */
+	private final VegetationCheckpoints checkpoints = new VegetationCheckpoints();
 	
 	public VegetationNoiseGenerator(Redrawable redraw) {
 		super(redraw);
@@ -37,84 +36,53 @@ public class VegetationNoiseGenerator extends NoiseOperation {
 		return "Vegetation";
 	}
 
+	/**
+	 * Growth spreads about one pixel per cycle, so a smaller render needs
+	 * proportionally fewer cycles to cover the same share of the image.
+	 */
 	@Override
-    public BufferedImage generateNoise(Parameters param, long seed) {
+	public Parameters scaleParameters(Parameters par, double factor) {
+		Parameters scaled = scale(par, factor, PARAM_ITER);
+		scaled.put(PARAM_ITER, Math.max(1.0, Math.round(scaled.get(PARAM_ITER, 50))));
+		return scaled;
+	}
+
+	@Override
+    public PixelBuffer generateNoise(Parameters param, long seed) {
         Random rand = new Random(seed);
-        BufferedImage fertility = getInput().left;
-        int res = getRedraw().getRes();
+        float[] fertility = getInput().getLeft().getGray();
+        int res = getRes();
         int seedCount = (int) param.get(PARAM_SEED_COUNT, 100);
         double growth = param.get(PARAM_GROWTH, 0.5);
         double deathRate = param.get(PARAM_DEATH, 0.2);
         int duration = (int) param.get(PARAM_ITER, 50);
         
-        int[][] current = new int[res][res];
-        int[][] next = new int[res][res];
+        VegetationAutomaton automaton = new VegetationAutomaton(res, fertility, growth, deathRate, seed);
 
-        // Seed initial vegetation
-        for (int i = 0; i < seedCount; i++) {
-            int x = rand.nextInt(res);
-            int y = rand.nextInt(res);
-            current[y][x] = 1;
+        // Continue from a saved state of the same run if there is one,
+        // otherwise seed initial vegetation
+        String key = res + "/" + seed + "/" + seedCount + "/" + growth + "/" + deathRate + "/"
+                + Long.toHexString(getInput().getLeft().contentHash());
+        VegetationAutomaton.State saved = checkpoints.latest(key, duration);
+        if (saved != null) {
+            automaton.restore(saved);
+        } else {
+            automaton.plant(rand, seedCount);
         }
 
-        // Run CA cycles
-        for (int cycle = 0; cycle < duration; cycle++) {
-            for (int y = 0; y < res; y++) {
-                for (int x = 0; x < res; x++) {
-                    int rgb = fertility.getRGB(x, y);
-                    int r = (rgb >> 16) & 0xFF;
-                    int g = (rgb >>  8) & 0xFF;
-                    int b = (rgb      ) & 0xFF;
-                    double fert = ((r + g + b) / 3.0) / 255.0;
-
-                    if (current[y][x] == 1) {
-                        // Alive cell: survival probability = 1 - deathRate * (1 - fert)
-                        double survivalProb = 1 - deathRate * (1 - fert);
-                        next[y][x] = (rand.nextDouble() < survivalProb) ? 1 : 0;
-                    } else {
-                        // Dead cell: may sprout if neighbors exist
-                        int aliveNeighbors = countAliveNeighbors(current, x, y);
-                        if (aliveNeighbors > 0 && rand.nextDouble() < fert * growth) {
-                            next[y][x] = 1;
-                        } else {
-                            next[y][x] = 0;
-                        }
-                    }
-                }
+        // Run CA cycles, saving the state now and then along the way
+        RenderMonitor monitor = RenderMonitor.current();
+        int interval = Math.max(1, duration / VegetationCheckpoints.MAX_PER_RUN);
+        for (int cycle = automaton.getCycle(); cycle < duration; cycle++) {
+            monitor.checkCancelled();
+            monitor.progress((double) cycle / duration);
+            automaton.step();
+            if ((cycle + 1) % interval == 0 || cycle + 1 == duration) {
+                checkpoints.put(key, automaton.snapshot());
             }
-            // Swap
-            int[][] temp = current;
-            current = next;
-            next = temp;
         }
 
         // Render output
-        BufferedImage output = new BufferedImage(res, res, BufferedImage.TYPE_INT_ARGB);
-        for (int y = 0; y < res; y++) {
-            for (int x = 0; x < res; x++) {
-                int intensity = current[y][x] == 1 ? 255 : 0;
-                int gray = (intensity << 16) | (intensity << 8) | intensity;
-                output.setRGB(x, y, 0xFF000000 | gray);
-            }
-        }
-        return output;
-    }
-
-    /**
-     * Counts alive neighbors around (x, y) in a toroidal grid.
-     */
-    private int countAliveNeighbors(int[][] grid, int x, int y) {
-        int res = getRedraw().getRes();
-        int count = 0;
-        for (int dy = -1; dy <= 1; dy++) {
-            for (int dx = -1; dx <= 1; dx++) {
-                if (dx == 0 && dy == 0) continue;
-                int nx = (x + dx + res) % res;
-                int ny = (y + dy + res) % res;
-                count += grid[ny][nx];
-            }
-        }
-        return count;
+        return PixelBuffer.ofGray(res, res, automaton.toGray());
     }
 }
-
@@ -8,17 +8,18 @@ import java.awt.image.BufferedImage;
 import java.awt.image.BufferedImageOp;
 import java.awt.image.ConvolveOp;
 import java.awt.image.Kernel;
+import java.util.Arrays;
 import java.util.Random;
 
 import com.beder.texture.ImagePair;
 import com.beder.texture.Operation;
 import com.beder.texture.Parameters;
+import com.beder.texture.PixelBuffer;
 import com.beder.texture.Redrawable;
+import com.beder.texture.RenderMonitor;
 import com.beder.util.OpenSimplex2S;
 
 public class ScatterOperation extends Operation {
-    private final OpenSimplex2S noise = new OpenSimplex2S();
-
     private static BufferedImage blur(BufferedImage img, int radius) {
         if (radius <= 0) return img;
         int size = radius * 2 + 1;
@@ -74,17 +75,17 @@ public class ScatterOperation extends Operation {
             return input;
         }
 
-        int res = getRedraw().getRes();
-        BufferedImage canvas = new BufferedImage(res, res, BufferedImage.TYPE_INT_ARGB);
+        int res = input.getRes();
+        int[] canvas = new int[res * res];
         if (aoEnabled) {
-            Graphics2D g = canvas.createGraphics();
-            g.setColor(Color.WHITE);
-            g.fillRect(0, 0, res, res);
-            g.dispose();
+            Arrays.fill(canvas, 0xFFFFFFFF);
         }
-        input.left = canvas;
+        input.setLeft(new PixelBuffer(res, res, canvas));
 
+        RenderMonitor monitor = RenderMonitor.current();
         for (int i = 0; i < quantity; i++) {
+            monitor.checkCancelled();
+            monitor.progress((double) i / quantity);
             // 3. Weighted random sprite selection
             int idx = repo.getRandomIndex(rnd);
             BufferedImage sprite = repo.getSprite(idx);
@@ -109,69 +110,120 @@ public class ScatterOperation extends Operation {
                                 RenderingHints.VALUE_INTERPOLATION_BILINEAR);
             g2.drawImage(sprite, tx, null);
             g2.dispose();
+            int[] spritePx = PixelBuffer.of(transformed).getPixels();
 
             // 7. Choose a random placement
             int x0 = rnd.nextInt(res);
             int y0 = rnd.nextInt(res);
 
             if (!aoEnabled) {
-                // 8. Paste with toroidal wrap: pixel‐by‐pixel
-                for (int y = 0; y < transformed.getHeight(); y++) {
-                    for (int x = 0; x < transformed.getWidth(); x++) {
-                        int argb = transformed.getRGB(x, y);
-                        int alpha = (argb >>> 24) & 0xFF;
-                        if (alpha == 0) continue;
-                        int dx = (x0 + x) % res;
-                        if (dx < 0) dx += res;
-                        int dy = (y0 + y) % res;
-                        if (dy < 0) dy += res;
-                        canvas.setRGB(dx, dy, argb);
-                    }
-                }
+                // 8. Paste with toroidal wrap
+                composite(canvas, res, spritePx, size, size, x0, y0, false);
             } else {
                 int ext = size + radius * 2;
                 BufferedImage mask = new BufferedImage(ext, ext, BufferedImage.TYPE_INT_ARGB);
                 Graphics2D mg = mask.createGraphics();
                 mg.drawImage(transformed, radius, radius, null);
                 mg.dispose();
-                BufferedImage blurred = blur(mask, radius);
+                int[] blurred = PixelBuffer.of(blur(mask, radius)).getPixels();
+                float[] noiseRow = new float[ext];
+                int startX = Math.floorMod(x0 - radius, res);
                 for (int y = 0; y < ext; y++) {
-                    for (int x = 0; x < ext; x++) {
-                        int alpha = (blurred.getRGB(x, y) >>> 24) & 0xFF;
+                    int dy = (y0 + y - radius) % res;
+                    if (dy < 0) dy += res;
+                    fillNoiseRow(seed, startX, dy, res, noiseScale, noiseRow);
+                    int row = dy * res;
+                    for (int x = 0, dx = startX; x < ext; x++, dx = dx + 1 == res ? 0 : dx + 1) {
+                        int alpha = (blurred[y * ext + x] >>> 24) & 0xFF;
                         if (alpha == 0) continue;
-                        int dx = (x0 + x - radius) % res;
-                        if (dx < 0) dx += res;
-                        int dy = (y0 + y - radius) % res;
-                        if (dy < 0) dy += res;
                         double val = alpha / 255.0;
-                        double n = (noise.noise2(seed, (dx) / noiseScale, (dy) / noiseScale) + 1) / 2.0;
+                        double n = (noiseRow[x] + 1) / 2.0;
                         n = (n - threshold) / (1 - threshold);
                         if (n < 0) n = 0;
                         val *= n * depth;
-                        int rgb = canvas.getRGB(dx, dy);
+                        int rgb = canvas[row + dx];
                         int gray = (rgb >> 16) & 0xFF;
                         int newGray = (int) Math.max(0, gray - val * 255);
-                        int newRgb = 0xFF000000 | (newGray << 16) | (newGray << 8) | newGray;
-                        canvas.setRGB(dx, dy, newRgb);
+                        canvas[row + dx] = PixelBuffer.grayToArgb(newGray);
                     }
                 }
                 // write sprite itself as white
-                for (int y = 0; y < size; y++) {
-                    for (int x = 0; x < size; x++) {
-                        int argb = transformed.getRGB(x, y);
-                        int alpha = (argb >>> 24) & 0xFF;
+                composite(canvas, res, spritePx, size, size, x0, y0, true);
+            }
+        }
+
+        return input;
+    }
+
+    /**
+     * Draws a {@code w x h} sprite over the {@code res x res} canvas with its
+     * top left corner at {@code (x0, y0)}, wrapping at the edges. The sprite
+     * is cut where it crosses the canvas edges, into at most four rectangles
+     * when it is no larger than the canvas, and each is blended row by row
+     * without per-pixel index arithmetic. Blending is source-over on
+     * non-premultiplied ARGB; transparent pixels are skipped and opaque ones
+     * copied. With {@code white} only the sprite's alpha is used.
+     */
+    static void composite(int[] canvas, int res, int[] src, int w, int h, int x0, int y0, boolean white) {
+        int dy = Math.floorMod(y0, res);
+        for (int sy = 0; sy < h; ) {
+            int rows = Math.min(h - sy, res - dy);
+            int dx = Math.floorMod(x0, res);
+            for (int sx = 0; sx < w; ) {
+                int cols = Math.min(w - sx, res - dx);
+                for (int r = 0; r < rows; r++) {
+                    int s = (sy + r) * w + sx;
+                    int d = (dy + r) * res + dx;
+                    for (int c = 0; c < cols; c++) {
+                        int argb = src[s + c];
+                        int alpha = argb >>> 24;
                         if (alpha == 0) continue;
-                        int dx = (x0 + x) % res;
-                        if (dx < 0) dx += res;
-                        int dy = (y0 + y) % res;
-                        if (dy < 0) dy += res;
-                        canvas.setRGB(dx, dy, 0xFFFFFFFF);
+                        if (white) argb |= 0x00FFFFFF;
+                        canvas[d + c] = alpha == 255 ? argb : over(argb, canvas[d + c]);
                     }
                 }
+                sx += cols;
+                dx = 0;
             }
+            sy += rows;
+            dy = 0;
         }
+    }
 
-        return input;
+    /**
+     * @return {@code src} composited over {@code dst}, both non-premultiplied
+     */
+    static int over(int src, int dst) {
+        int sa = src >>> 24, da = dst >>> 24;
+        int fs = sa * 255, fd = da * (255 - sa);
+        int out = fs + fd; // output alpha, scaled by 255
+        if (out == 0) return 0;
+        int half = out / 2;
+        int r = (((src >> 16) & 0xFF) * fs + ((dst >> 16) & 0xFF) * fd + half) / out;
+        int g = (((src >> 8) & 0xFF) * fs + ((dst >> 8) & 0xFF) * fd + half) / out;
+        int b = ((src & 0xFF) * fs + (dst & 0xFF) * fd + half) / out;
+        return ((out + 127) / 255) << 24 | r << 16 | g << 8 | b;
+    }
+
+    /**
+     * Fills {@code out} with the noise at canvas pixels {@code x0, x0 + 1, ...}
+     * of row {@code y}, wrapping around at {@code res}: one
+     * {@link OpenSimplex2S#noise2Row} call per wrapped run.
+     */
+    private static void fillNoiseRow(long seed, int x0, int y, int res, double scale, float[] out) {
+        if (x0 < 0) x0 += res;
+        int i = 0;
+        while (i < out.length) {
+            int run = Math.min(out.length - i, res - x0);
+            OpenSimplex2S.noise2Row(seed, x0, y, run, scale, out, i);
+            i += run;
+            x0 = 0;
+        }
+    }
+
+    @Override
+    public Parameters scaleParameters(Parameters par, double factor) {
+        return scale(par, factor, "Size", "StdDev", "Radius", "Scale");
     }
 
     @Override
@@ -179,6 +231,11 @@ public class ScatterOperation extends Operation {
         return "Scatter";
     }
 
+    @Override
+    public String getCacheTag() {
+        return "sprites@" + SpriteRepository.getInstance().getVersion();
+    }
+
     @Override
     public String getDescription() {
         return "Scatter: randomly distributes sprites across the image buffer";
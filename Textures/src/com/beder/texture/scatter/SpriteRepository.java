@@ -11,6 +11,7 @@ public class SpriteRepository {
     private final List<BufferedImage> sprites;
     private final List<Integer> weights;
     private File lastDirectory;
+    private int version;
 
     private SpriteRepository() {
         sprites = new ArrayList<>();
@@ -37,6 +38,7 @@ public class SpriteRepository {
         }
         sprites.add(img);
         weights.add(weight);
+        version++;
     }
 
     public synchronized int getWeight(int index) {
@@ -50,6 +52,14 @@ public class SpriteRepository {
     public synchronized void clear() {
         sprites.clear();
         weights.clear();
+        version++;
+    }
+
+    /**
+     * @return a counter that changes whenever sprites are added or cleared
+     */
+    public synchronized int getVersion() {
+        return version;
     }
 
     /**
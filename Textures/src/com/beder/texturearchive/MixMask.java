@@ -3,9 +3,9 @@ package com.beder.texturearchive;
 import com.beder.texture.ImagePair;
 import com.beder.texture.Operation;
 import com.beder.texture.Parameters;
+import com.beder.texture.PixelBuffer;
 import com.beder.texture.Redrawable;
-
-import java.awt.image.BufferedImage;
+import com.beder.texture.TileScheduler;
 
 public class MixMask extends Operation {
     public MixMask(Redrawable redraw) {
@@ -16,30 +16,33 @@ public class MixMask extends Operation {
     @Override
     public ImagePair executeOperation(ImagePair pair, Parameters par) {
         double ratio = par.get("Ratio", 0.5);
-        int w = pair.left.getWidth();
-        int h = pair.left.getHeight();
-        BufferedImage out = new BufferedImage(w, h, pair.left.getType());
-        for (int x = 0; x < w; x++) {
-            for (int y = 0; y < h; y++) {
-                int leftRGB = pair.left.getRGB(x, y);
-                int rightRGB = pair.right.getRGB(x, y);
-                int la = (leftRGB >>> 24) & 0xFF;
-                int lr = (leftRGB >>> 16) & 0xFF;
-                int lg = (leftRGB >>> 8) & 0xFF;
-                int lb = leftRGB & 0xFF;
-                int ra = (rightRGB >>> 24) & 0xFF;
-                int rr = (rightRGB >>> 16) & 0xFF;
-                int rg = (rightRGB >>> 8) & 0xFF;
-                int rb = rightRGB & 0xFF;
-                int oa = (int) (la * (1 - ratio) + ra * ratio);
-                int orr = (int) (lr * (1 - ratio) + rr * ratio);
-                int og = (int) (lg * (1 - ratio) + rg * ratio);
-                int ob = (int) (lb * (1 - ratio) + rb * ratio);
-                int rgb = (oa << 24) | (orr << 16) | (og << 8) | ob;
-                out.setRGB(x, y, rgb);
+        int w = pair.getLeft().getWidth();
+        int h = pair.getLeft().getHeight();
+        int[] left = pair.getLeft().getPixels();
+        int[] right = pair.getRight().getPixels();
+        int[] out = new int[w * h];
+        TileScheduler.forEachTile(w, h, (x0, y0, x1, y1) -> {
+            for (int y = y0; y < y1; y++) {
+                for (int i = y * w + x0, end = y * w + x1; i < end; i++) {
+                    int leftRGB = left[i];
+                    int rightRGB = right[i];
+                    int la = (leftRGB >>> 24) & 0xFF;
+                    int lr = (leftRGB >>> 16) & 0xFF;
+                    int lg = (leftRGB >>> 8) & 0xFF;
+                    int lb = leftRGB & 0xFF;
+                    int ra = (rightRGB >>> 24) & 0xFF;
+                    int rr = (rightRGB >>> 16) & 0xFF;
+                    int rg = (rightRGB >>> 8) & 0xFF;
+                    int rb = rightRGB & 0xFF;
+                    int oa = (int) (la * (1 - ratio) + ra * ratio);
+                    int orr = (int) (lr * (1 - ratio) + rr * ratio);
+                    int og = (int) (lg * (1 - ratio) + rg * ratio);
+                    int ob = (int) (lb * (1 - ratio) + rb * ratio);
+                    out[i] = (oa << 24) | (orr << 16) | (og << 8) | ob;
+                }
             }
-        }
-        pair.right = out;
+        });
+        pair.setRight(new PixelBuffer(w, h, out));
         return pair;
     }
 
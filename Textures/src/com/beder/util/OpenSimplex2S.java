@@ -58,6 +58,110 @@ public class OpenSimplex2S {
         return noise2_UnskewedBase(seed, xs, ys);
     }
 
+    /**
+     * Fills {@code out[off + i]}, {@code 0 <= i < count}, with
+     * {@code noise2(seed, (x0 + i) / scale, y / scale)}, bit for bit, for
+     * filling pixel rows of a texture. Along a row the lattice cell is
+     * tracked incrementally instead of being floored for every sample, and
+     * the choice of the third and fourth vertex is made without branches.
+     * {@code scale} must be positive.
+     */
+    public static void noise2Row(long seed, int x0, int y, int count, double scale, float[] out, int off) {
+        noise2Row(seed, x0, y / scale, count, scale, out, off);
+    }
+
+    /**
+     * Fills a {@code width} x {@code height} block of pixels: row {@code j}
+     * starts at {@code out[off + j * stride]} and holds
+     * {@code noise2(seed, (x0 + i) / scale, (y0 + j) / scale)}, bit for bit.
+     */
+    public static void noise2Region(long seed, int x0, int y0, int width, int height, double scale,
+                                    float[] out, int off, int stride) {
+        for (int j = 0; j < height; j++) {
+            noise2Row(seed, x0, (y0 + j) / scale, width, scale, out, off + j * stride);
+        }
+    }
+
+    /**
+     * {@link #noise2_UnskewedBase} along a row. Every float operation is the
+     * one {@code noise2} performs, in the same order: offsets that
+     * {@code noise2} adds are subtracted here as their exact negation, and a
+     * vertex outside its radius adds {@code -0.0f}, which leaves any sum
+     * unchanged.
+     */
+    private static void noise2Row(long seed, int x0, double y, int count, double scale, float[] out, int off) {
+        final float[] G = GRADIENTS_2D;
+        final float U = (float)UNSKEW_2D;
+        final float A1T = (float)(2 * (1 + 2 * UNSKEW_2D) * (1 / UNSKEW_2D + 2));
+        final float A1C = (float)(-2 * (1 + 2 * UNSKEW_2D) * (1 + 2 * UNSKEW_2D));
+        final float D1 = (float)(1 + 2 * UNSKEW_2D);
+        final float L2X = (float)(3 * UNSKEW_2D + 2), L2Y = (float)(3 * UNSKEW_2D + 1);
+        final float UU = (float)UNSKEW_2D, U1 = (float)(UNSKEW_2D + 1);
+        final float N1U = -(float)(1 + UNSKEW_2D), NU = -(float)UNSKEW_2D;
+        final float NU1 = -(float)(UNSKEW_2D + 1);
+        double xsbD = Double.POSITIVE_INFINITY, ysbD = Double.POSITIVE_INFINITY;
+        long xsbp = 0, ysbp = 0;
+        for (int i = 0; i < count; i++) {
+            double x = (x0 + i) / scale;
+            double s = SKEW_2D * (x + y);
+            double xs = x + s, ys = y + s;
+            // xs and ys grow along the row, so the cell rarely changes
+            if (xs < xsbD || xs >= xsbD + 1) {
+                int xsb = fastFloor(xs);
+                xsbD = xsb;
+                xsbp = xsb * PRIME_X;
+            }
+            if (ys < ysbD || ys >= ysbD + 1) {
+                int ysb = fastFloor(ys);
+                ysbD = ysb;
+                ysbp = ysb * PRIME_Y;
+            }
+            float xi = (float)(xs - xsbD), yi = (float)(ys - ysbD);
+
+            float t = (xi + yi) * U;
+            float dx0 = xi + t, dy0 = yi + t;
+            float a0 = RSQUARED_2D - dx0 * dx0 - dy0 * dy0;
+            int g = gradIndex(seed, xsbp, ysbp);
+            float value = (a0 * a0) * (a0 * a0) * (G[g] * dx0 + G[g | 1] * dy0);
+
+            float a1 = A1T * t + (A1C + a0);
+            float dx1 = dx0 - D1, dy1 = dy0 - D1;
+            g = gradIndex(seed, xsbp + PRIME_X, ysbp + PRIME_Y);
+            value += (a1 * a1) * (a1 * a1) * (G[g] * dx1 + G[g | 1] * dy1);
+
+            float xmyi = xi - yi;
+            // third and fourth vertex: offsets from the first one and hash inputs
+            float o2x, o2y, o3x, o3y;
+            long h2x, h2y, h3x, h3y;
+            if (t < UNSKEW_2D) {
+                boolean c2 = xi + xmyi > 1;
+                o2x = c2 ? L2X : UU; o2y = c2 ? L2Y : U1;
+                h2x = c2 ? xsbp + (PRIME_X << 1) : xsbp; h2y = ysbp + PRIME_Y;
+                boolean c3 = yi - xmyi > 1;
+                o3x = c3 ? L2Y : U1; o3y = c3 ? L2X : UU;
+                h3x = xsbp + PRIME_X; h3y = c3 ? ysbp + (PRIME_Y << 1) : ysbp;
+            } else {
+                boolean c2 = xi + xmyi < 0;
+                o2x = c2 ? N1U : U1; o2y = c2 ? NU : UU;
+                h2x = c2 ? xsbp - PRIME_X : xsbp + PRIME_X; h2y = ysbp;
+                boolean c3 = yi < xmyi;
+                o3x = c3 ? NU : UU; o3y = c3 ? NU1 : U1;
+                h3x = xsbp; h3y = c3 ? ysbp - PRIME_Y : ysbp + PRIME_Y;
+            }
+            float dx2 = dx0 - o2x, dy2 = dy0 - o2y;
+            float a2 = RSQUARED_2D - dx2 * dx2 - dy2 * dy2;
+            g = gradIndex(seed, h2x, h2y);
+            float c2v = (a2 * a2) * (a2 * a2) * (G[g] * dx2 + G[g | 1] * dy2);
+            value += a2 > 0 ? c2v : -0.0f;
+            float dx3 = dx0 - o3x, dy3 = dy0 - o3y;
+            float a3 = RSQUARED_2D - dx3 * dx3 - dy3 * dy3;
+            g = gradIndex(seed, h3x, h3y);
+            float c3v = (a3 * a3) * (a3 * a3) * (G[g] * dx3 + G[g | 1] * dy3);
+            value += a3 > 0 ? c3v : -0.0f;
+            out[off + i] = value;
+        }
+    }
+
     /**
      * 2D OpenSimplex2S/SuperSimplex noise, with Y pointing down the main diagonal.
      * Might be better for a 2D sandbox style game, where Y is vertical.
@@ -544,11 +648,15 @@ public class OpenSimplex2S {
      */
 
     private static float grad(long seed, long xsvp, long ysvp, float dx, float dy) {
+        int gi = gradIndex(seed, xsvp, ysvp);
+        return GRADIENTS_2D[gi | 0] * dx + GRADIENTS_2D[gi | 1] * dy;
+    }
+
+    private static int gradIndex(long seed, long xsvp, long ysvp) {
         long hash = seed ^ xsvp ^ ysvp;
         hash *= HASH_MULTIPLIER;
         hash ^= hash >> (64 - N_GRADS_2D_EXPONENT + 1);
-        int gi = (int)hash & ((N_GRADS_2D - 1) << 1);
-        return GRADIENTS_2D[gi | 0] * dx + GRADIENTS_2D[gi | 1] * dy;
+        return (int)hash & ((N_GRADS_2D - 1) << 1);
     }
 
     private static float grad(long seed, long xrvp, long yrvp, long zrvp, float dx, float dy, float dz) {
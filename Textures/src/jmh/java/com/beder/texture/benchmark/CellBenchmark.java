@@ -0,0 +1,26 @@
+package com.beder.texture.benchmark;
+
+import org.openjdk.jmh.annotations.Param;
+
+import com.beder.texture.Operation;
+import com.beder.texture.Parameters;
+import com.beder.texture.noise.CellNoiseGenerator;
+
+public class CellBenchmark extends OperationBenchmark {
+    @Param({"10", "50"})
+    public double cells;
+
+    @Param({"0", "40"})
+    public double gaussian;
+
+    @Override
+    protected Operation createOperation() {
+        return new CellNoiseGenerator(null);
+    }
+
+    @Override
+    protected void configure(Parameters par) {
+        par.put("Frequency", cells);
+        par.put("Guassian", gaussian);
+    }
+}
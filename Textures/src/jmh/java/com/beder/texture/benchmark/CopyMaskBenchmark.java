@@ -0,0 +1,16 @@
+package com.beder.texture.benchmark;
+
+import com.beder.texture.Operation;
+import com.beder.texture.Parameters;
+import com.beder.texture.mask.CopyMask;
+
+public class CopyMaskBenchmark extends OperationBenchmark {
+    @Override
+    protected Operation createOperation() {
+        return new CopyMask(null);
+    }
+
+    @Override
+    protected void configure(Parameters par) {
+    }
+}
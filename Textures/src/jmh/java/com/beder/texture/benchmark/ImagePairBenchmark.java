@@ -0,0 +1,51 @@
+package com.beder.texture.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.beder.texture.ImagePair;
+
+/**
+ * {@link ImagePair#copy()} on its own (copy-on-write, no pixels copied) and
+ * followed by an edit of one half, which is where the pixels are copied.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ImagePairBenchmark {
+    @Param({"256", "1024", "2048"})
+    public int res;
+
+    private ImagePair pair;
+
+    @Setup
+    public void setUp() {
+        pair = new ImagePair(res);
+    }
+
+    @Benchmark
+    public ImagePair copy(PixelCounter counter) {
+        counter.pixels += (long) res * res;
+        return pair.copy();
+    }
+
+    @Benchmark
+    public int[] copyAndEdit(PixelCounter counter) {
+        counter.pixels += (long) res * res;
+        return pair.copy().getLeft().editPixels();
+    }
+}
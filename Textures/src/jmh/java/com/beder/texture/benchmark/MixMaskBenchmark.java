@@ -0,0 +1,34 @@
+package com.beder.texture.benchmark;
+
+import org.openjdk.jmh.annotations.Param;
+
+import com.beder.texture.ImagePair;
+import com.beder.texture.Operation;
+import com.beder.texture.Parameters;
+import com.beder.texture.noise.SimplexNoiseGenerator;
+import com.beder.texturearchive.MixMask;
+
+public class MixMaskBenchmark extends OperationBenchmark {
+    @Param({"0.25", "0.5"})
+    public double ratio;
+
+    @Override
+    protected Operation createOperation() {
+        return new MixMask(null);
+    }
+
+    @Override
+    protected void configure(Parameters par) {
+        par.put("Ratio", ratio);
+    }
+
+    /** Noise on the left so the mix has real content on both sides. */
+    @Override
+    protected ImagePair createInput(int res) {
+        Parameters noise = new Parameters();
+        noise.put("Seed", 7.0);
+        ImagePair pair = new SimplexNoiseGenerator(null).executeOperation(new ImagePair(res), noise);
+        pair.setRight(pair.getLeft().copy());
+        return pair;
+    }
+}
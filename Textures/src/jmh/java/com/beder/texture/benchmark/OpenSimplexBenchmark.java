@@ -0,0 +1,60 @@
+package com.beder.texture.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.beder.util.OpenSimplex2S;
+
+/**
+ * 2D fill rate of {@link OpenSimplex2S}: one {@code noise2} call per pixel
+ * against {@link OpenSimplex2S#noise2Region}, single threaded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OpenSimplexBenchmark {
+    @Param({"256", "1024"})
+    public int res;
+
+    @Param({"2", "200"})
+    public double scale;
+
+    private float[] plane;
+
+    @Setup
+    public void setUp() {
+        plane = new float[res * res];
+    }
+
+    @Benchmark
+    public float[] perSample(PixelCounter counter) {
+        for (int y = 0; y < res; y++) {
+            for (int x = 0; x < res; x++) {
+                plane[y * res + x] = OpenSimplex2S.noise2(1, x / scale, y / scale);
+            }
+        }
+        counter.pixels += (long) res * res;
+        return plane;
+    }
+
+    @Benchmark
+    public float[] region(PixelCounter counter) {
+        OpenSimplex2S.noise2Region(1, 0, 0, res, res, scale, plane, 0, res);
+        counter.pixels += (long) res * res;
+        return plane;
+    }
+}
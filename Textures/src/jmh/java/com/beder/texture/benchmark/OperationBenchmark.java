@@ -0,0 +1,67 @@
+package com.beder.texture.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.beder.texture.ImagePair;
+import com.beder.texture.Operation;
+import com.beder.texture.Parameters;
+
+/**
+ * Runs one {@link Operation} on a fixed input pair, the way a layer does,
+ * and counts the pixels of one half per invocation. Subclasses create the
+ * operation and its parameters from their own {@code @Param} fields.
+ * The input is copied per call (cheap, copy-on-write) because operations
+ * write into the pair they are given.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public abstract class OperationBenchmark {
+    @Param({"256", "1024", "2048"})
+    public int res;
+
+    protected Operation op;
+    protected Parameters par;
+    protected ImagePair input;
+
+    @Setup
+    public void setUp() throws Exception {
+        op = createOperation();
+        par = new Parameters();
+        par.put("Seed", 42.0);
+        configure(par);
+        input = createInput(res);
+    }
+
+    protected abstract Operation createOperation();
+
+    /** Fills in the parameters under test. */
+    protected abstract void configure(Parameters par);
+
+    /** The pair the operation runs on; blank by default. */
+    protected ImagePair createInput(int res) throws Exception {
+        return new ImagePair(res);
+    }
+
+    @Benchmark
+    public ImagePair execute(PixelCounter counter) {
+        ImagePair out = op.executeOperation(input.copy(), par);
+        counter.pixels += (long) res * res;
+        return out;
+    }
+}
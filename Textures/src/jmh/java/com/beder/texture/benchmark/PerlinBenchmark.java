@@ -0,0 +1,26 @@
+package com.beder.texture.benchmark;
+
+import org.openjdk.jmh.annotations.Param;
+
+import com.beder.texture.Operation;
+import com.beder.texture.Parameters;
+import com.beder.texture.noise.PerlinNoiseGenerator;
+
+public class PerlinBenchmark extends OperationBenchmark {
+    @Param({"4", "16"})
+    public double frequency;
+
+    @Param({"1", "4", "8"})
+    public double iterations;
+
+    @Override
+    protected Operation createOperation() {
+        return new PerlinNoiseGenerator(null);
+    }
+
+    @Override
+    protected void configure(Parameters par) {
+        par.put("Frequency", frequency);
+        par.put("Iterations", iterations);
+    }
+}
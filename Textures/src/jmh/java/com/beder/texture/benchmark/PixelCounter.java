@@ -0,0 +1,22 @@
+package com.beder.texture.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Counts pixels produced per benchmark invocation. JMH reports the public
+ * field as a rate next to the score, i.e. pixels/s in throughput mode.
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class PixelCounter {
+    public long pixels;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        pixels = 0;
+    }
+}
@@ -0,0 +1,56 @@
+package com.beder.texture.benchmark;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+import org.openjdk.jmh.annotations.Param;
+
+import com.beder.texture.Operation;
+import com.beder.texture.Parameters;
+import com.beder.texture.scatter.ScatterOperation;
+import com.beder.texture.scatter.SpriteRepository;
+
+/**
+ * Scatters a single synthetic sprite (a soft-edged disc) from the shared
+ * {@link SpriteRepository}.
+ */
+public class ScatterBenchmark extends OperationBenchmark {
+    @Param({"10", "100"})
+    public double quantity;
+
+    @Param({"32", "128"})
+    public double size;
+
+    @Param({"false", "true"})
+    public boolean ao;
+
+    @Override
+    protected Operation createOperation() {
+        SpriteRepository repo = SpriteRepository.getInstance();
+        repo.clear();
+        repo.addSprite(disc(64), 1);
+        return new ScatterOperation(null);
+    }
+
+    @Override
+    protected void configure(Parameters par) {
+        par.put("Quantity", quantity);
+        par.put("Size", size);
+        par.put("StdDev", size / 8);
+        par.put("AO", ao ? 1.0 : 0.0);
+        par.put("Radius", 8.0);
+        par.put("Depth", 0.01);
+        par.put("Scale", 0.5);
+        par.put("Threshold", 0.5);
+    }
+
+    private static BufferedImage disc(int size) {
+        BufferedImage img = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = img.createGraphics();
+        g.setColor(new Color(120, 160, 80, 255));
+        g.fillOval(2, 2, size - 4, size - 4);
+        g.dispose();
+        return img;
+    }
+}
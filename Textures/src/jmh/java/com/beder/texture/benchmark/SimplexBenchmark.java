@@ -0,0 +1,22 @@
+package com.beder.texture.benchmark;
+
+import org.openjdk.jmh.annotations.Param;
+
+import com.beder.texture.Operation;
+import com.beder.texture.Parameters;
+import com.beder.texture.noise.SimplexNoiseGenerator;
+
+public class SimplexBenchmark extends OperationBenchmark {
+    @Param({"50", "200"})
+    public double scale;
+
+    @Override
+    protected Operation createOperation() {
+        return new SimplexNoiseGenerator(null);
+    }
+
+    @Override
+    protected void configure(Parameters par) {
+        par.put("Scale", scale);
+    }
+}
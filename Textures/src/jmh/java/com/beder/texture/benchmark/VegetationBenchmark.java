@@ -0,0 +1,60 @@
+package com.beder.texture.benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+
+import com.beder.texture.ImagePair;
+import com.beder.texture.Operation;
+import com.beder.texture.Parameters;
+import com.beder.texture.noise.SimplexNoiseGenerator;
+import com.beder.texture.noise.VegetationNoiseGenerator;
+
+/**
+ * Vegetation grows over the left half as a fertility map, so the input is a
+ * Simplex field rather than a blank pair.
+ *
+ * The generator keeps checkpoints of its recent runs and would answer a
+ * repeat of the same render from them, so every invocation gets a fresh
+ * instance and runs all its cycles. Continuing from a checkpoint is measured
+ * by {@link VegetationResumeBenchmark}.
+ */
+public class VegetationBenchmark extends OperationBenchmark {
+    @Param({"100", "1000"})
+    public double seeds;
+
+    @Param({"10", "50"})
+    public double iterations;
+
+    /** Not timed: drops the checkpoints of the previous invocation. */
+    @Setup(Level.Invocation)
+    public void freshOperation() {
+        op = createOperation();
+        prepare();
+    }
+
+    /** Runs after each fresh operation is created, untimed. */
+    protected void prepare() {
+    }
+
+    @Override
+    protected Operation createOperation() {
+        return new VegetationNoiseGenerator(null);
+    }
+
+    @Override
+    protected void configure(Parameters par) {
+        par.put("Seeds", seeds);
+        par.put("Growth", 0.5);
+        par.put("Death", 0.2);
+        par.put("Iterations", iterations);
+    }
+
+    @Override
+    protected ImagePair createInput(int res) {
+        Parameters fertility = new Parameters();
+        fertility.put("Seed", 7.0);
+        fertility.put("Scale", res / 4.0);
+        return new SimplexNoiseGenerator(null).executeOperation(new ImagePair(res), fertility);
+    }
+}
@@ -0,0 +1,30 @@
+package com.beder.texture.benchmark;
+
+import org.openjdk.jmh.annotations.Param;
+
+import com.beder.texture.Parameters;
+
+/**
+ * Raising Iterations by {@code extra} after a render: the timed run continues
+ * from the checkpoint the untimed run before it left, so only the extra
+ * cycles are computed.
+ */
+public class VegetationResumeBenchmark extends VegetationBenchmark {
+    @Param({"10"})
+    public double extra;
+
+    /** Has the fresh generator render {@code iterations} cycles first. */
+    @Override
+    protected void prepare() {
+        Parameters before = new Parameters();
+        before.putAll(par);
+        before.put("Iterations", iterations);
+        op.executeOperation(input.copy(), before);
+    }
+
+    @Override
+    protected void configure(Parameters par) {
+        super.configure(par);
+        par.put("Iterations", iterations + extra);
+    }
+}
@@ -0,0 +1,22 @@
+package com.beder.texture.benchmark;
+
+import org.openjdk.jmh.annotations.Param;
+
+import com.beder.texture.Operation;
+import com.beder.texture.Parameters;
+import com.beder.texture.noise.VoronoiNoiseGenerator;
+
+public class VoronoiBenchmark extends OperationBenchmark {
+    @Param({"20", "200"})
+    public double points;
+
+    @Override
+    protected Operation createOperation() {
+        return new VoronoiNoiseGenerator(null);
+    }
+
+    @Override
+    protected void configure(Parameters par) {
+        par.put("Points", points);
+    }
+}
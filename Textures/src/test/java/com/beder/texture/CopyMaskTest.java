@@ -25,14 +25,14 @@ public class CopyMaskTest {
         ImagePair pair = new ImagePair(4);
         for (int x = 0; x < 4; x++) {
             for (int y = 0; y < 4; y++) {
-                pair.left.setRGB(x, y, Color.RED.getRGB());
-                pair.right.setRGB(x, y, Color.BLUE.getRGB());
+                pair.getLeftImage().setRGB(x, y, Color.RED.getRGB());
+                pair.getRightImage().setRGB(x, y, Color.BLUE.getRGB());
             }
         }
         op.executeOperation(pair, new Parameters());
         for (int x = 0; x < 4; x++) {
             for (int y = 0; y < 4; y++) {
-                assertEquals(pair.left.getRGB(x, y), pair.right.getRGB(x, y));
+                assertEquals(pair.getLeftImage().getRGB(x, y), pair.getRightImage().getRGB(x, y));
             }
         }
     }
@@ -0,0 +1,32 @@
+package com.beder.texture;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ImageViewTest {
+    @Test
+    public void boxFilterAveragesBlocks() {
+        int[] src = {
+            0xFF000000, 0xFF040404, 0xFFFFFFFF, 0xFFFFFFFF,
+            0xFF080808, 0xFF0C0C0C, 0xFFFFFFFF, 0xFFFFFFFF,
+            0x00000000, 0x00000000, 0xFF102030, 0xFF102030,
+            0x00000000, 0x00000000, 0xFF102030, 0xFF102030,
+        };
+        int[] dst = ImageView.downsample(src, 4, 4, 2, 2);
+        assertArrayEquals(new int[] {0xFF060606, 0xFFFFFFFF, 0x00000000, 0xFF102030}, dst);
+    }
+
+    @Test
+    public void enlargingRepeatsPixels() {
+        int[] dst = ImageView.downsample(new int[] {1, 2}, 2, 1, 4, 2);
+        assertArrayEquals(new int[] {1, 1, 2, 2, 1, 1, 2, 2}, dst);
+    }
+
+    @Test
+    public void scaledImageHasRequestedSize() {
+        PixelBuffer b = PixelBuffer.ofGray(100, 100, new float[100 * 100]);
+        assertEquals(40, ImageView.scale(b, 40).getWidth());
+        assertEquals(40, ImageView.scale(b, 40).getHeight());
+    }
+}
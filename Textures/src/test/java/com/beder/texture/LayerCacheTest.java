@@ -0,0 +1,46 @@
+package com.beder.texture;
+
+import com.beder.texture.noise.SimplexNoiseGenerator;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LayerCacheTest {
+    private Parameters params(double scale) {
+        Parameters p = new Parameters();
+        p.put("Seed", 3.0);
+        p.put("Scale", scale);
+        return p;
+    }
+
+    @Test
+    public void toggledParameterIsServedFromCache() {
+        LayerCache cache = LayerCache.getInstance();
+        cache.clear();
+        Layer l = new Layer(new SimplexNoiseGenerator(null));
+
+        l.setParam(params(5));
+        int[] first = l.apply(new ImagePair(16)).getLeft().getPixels().clone();
+        l.setParam(params(9));
+        l.apply(new ImagePair(16));
+
+        long hits = cache.getHits();
+        l.setParam(params(5));
+        ImagePair again = l.apply(new ImagePair(16));
+        assertEquals(hits + 1, cache.getHits());
+        assertArrayEquals(first, again.getLeft().getPixels());
+    }
+
+    @Test
+    public void keyDependsOnInputAndResolution() {
+        Operation op = new SimplexNoiseGenerator(null);
+        Parameters p = params(5);
+        ImagePair a = new ImagePair(8);
+        ImagePair b = new ImagePair(8);
+        assertEquals(LayerCache.key(op, p, a), LayerCache.key(op, p, b));
+
+        b.getRight().editPixels()[0] = 0xFFFFFFFF;
+        assertNotEquals(LayerCache.key(op, p, a), LayerCache.key(op, p, b));
+        assertNotEquals(LayerCache.key(op, p, a), LayerCache.key(op, p, new ImagePair(16)));
+    }
+}
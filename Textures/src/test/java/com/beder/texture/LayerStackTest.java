@@ -0,0 +1,79 @@
+package com.beder.texture;
+
+import com.beder.texture.noise.PerlinNoiseGenerator;
+import com.beder.texture.noise.SimplexNoiseGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LayerStackTest {
+    @Test
+    public void loadedLayersAreComputedOnDemand() {
+        List<Layer> layers = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Layer l = new Layer(i % 2 == 0 ? new SimplexNoiseGenerator(null) : new PerlinNoiseGenerator(null));
+            l.getParam().put("Seed", (double) i);
+            layers.add(l);
+        }
+        LayerStack stack = new LayerStack(new TextureGenius(64));
+        stack.load(layers);
+        assertSame(layers.get(2), stack.getCurrent());
+        for (Layer l : layers) {
+            assertFalse(l.isApplied());
+            assertFalse(l.isDirty());
+        }
+
+        ImagePair mid = stack.getOutput(1);
+        assertTrue(layers.get(0).isApplied());
+        assertTrue(layers.get(1).isApplied());
+        assertFalse(layers.get(2).isApplied(), "layers below the requested one stay unapplied");
+
+        Layer a = new Layer(new SimplexNoiseGenerator(null));
+        a.getParam().put("Seed", 0.0);
+        Layer b = new Layer(new PerlinNoiseGenerator(null));
+        b.getParam().put("Seed", 1.0);
+        ImagePair expected = b.apply(a.apply(new ImagePair(64)));
+        assertEquals(expected.contentHash(), mid.contentHash());
+    }
+
+    @Test
+    public void editedLayersAreReappliedWithTheLayersAfterThem() {
+        List<Layer> layers = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Layer l = new Layer(i % 2 == 0 ? new SimplexNoiseGenerator(null) : new PerlinNoiseGenerator(null));
+            l.getParam().put("Seed", (double) i);
+            layers.add(l);
+        }
+        LayerStack stack = new LayerStack(new TextureGenius(64));
+        stack.load(layers);
+        stack.getOutput(2);
+        long beforeMid = layers.get(1).getOutputHash();
+
+        // an edit whose render was cancelled before anything was re-applied
+        Parameters p = new Parameters();
+        p.putAll(layers.get(1).getParam());
+        p.put("Seed", 7.0);
+        layers.get(1).setParam(p);
+        stack.markDirty(1);
+        assertFalse(stack.needsRender(0));
+        assertTrue(stack.needsRender(1));
+        assertTrue(stack.needsRender(2));
+
+        Layer a = new Layer(new SimplexNoiseGenerator(null));
+        a.getParam().put("Seed", 0.0);
+        Layer b = new Layer(new PerlinNoiseGenerator(null));
+        b.getParam().put("Seed", 7.0);
+        Layer c = new Layer(new SimplexNoiseGenerator(null));
+        c.getParam().put("Seed", 2.0);
+        ImagePair expected = c.apply(b.apply(a.apply(new ImagePair(64))));
+        assertEquals(expected.contentHash(), stack.getOutput(2).contentHash());
+        assertNotEquals(beforeMid, layers.get(1).getOutputHash());
+        // the last layer was checked against the new input, not kept as it was
+        assertEquals(layers.get(1).getOutputHash(), layers.get(2).getInputHash());
+        assertFalse(stack.needsRender(1));
+        assertFalse(stack.needsRender(2));
+    }
+}
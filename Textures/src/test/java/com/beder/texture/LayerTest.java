@@ -0,0 +1,40 @@
+package com.beder.texture;
+
+import com.beder.texture.noise.SimplexNoiseGenerator;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LayerTest {
+    @Test
+    public void previewMatchesSubsampledFullRender() {
+        Layer layer = new Layer(new SimplexNoiseGenerator(null));
+        Parameters p = new Parameters();
+        p.put("Scale", 40.0);
+        p.put("Seed", 7.0);
+        layer.setParam(p);
+
+        float[] full = layer.apply(new ImagePair(128)).getLeft().getGray();
+        float[] low = layer.preview(new ImagePair(32), 0.25).getLeft().getGray();
+        for (int y = 0; y < 32; y++) {
+            for (int x = 0; x < 32; x++) {
+                assertEquals(full[(y * 4) * 128 + x * 4], low[y * 32 + x]);
+            }
+        }
+    }
+
+    @Test
+    public void previewLeavesLayerUnchanged() {
+        Layer layer = new Layer(new SimplexNoiseGenerator(null));
+        Parameters p = new Parameters();
+        p.put("Seed", 3.0);
+        layer.setParam(p);
+        ImagePair out = layer.apply(new ImagePair(64));
+        long hash = out.contentHash();
+
+        layer.preview(new ImagePair(16), 0.25);
+        assertEquals(hash, layer.getOutput().contentHash());
+        assertEquals(64, layer.getOutput().getRes());
+        assertFalse(layer.needsApply(new ImagePair(64)));
+    }
+}
@@ -0,0 +1,71 @@
+package com.beder.texture;
+
+import com.beder.texture.noise.SimplexNoiseGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PackedPairTest {
+    @Test
+    public void roundTripsEveryRepresentation() throws Exception {
+        int n = 40 * 30;
+        int[] argb = new int[n];
+        float[] gray = new float[n];
+        byte[] bytes = new byte[n];
+        Random r = new Random(3);
+        for (int i = 0; i < n; i++) {
+            argb[i] = r.nextInt();
+            gray[i] = r.nextFloat();
+            bytes[i] = (byte) r.nextInt();
+        }
+        roundTrip(new ImagePair(new PixelBuffer(40, 30, argb), PixelBuffer.ofGray(40, 30, gray)));
+        roundTrip(new ImagePair(PixelBuffer.ofGray(40, 30, bytes), PixelBuffer.filled(40, 30, 0xFF123456)));
+    }
+
+    private static void roundTrip(ImagePair pair) throws Exception {
+        PackedPair packed = PackedPair.pack(pair);
+        assertEquals(pair.contentHash(), packed.unpack().contentHash());
+        packed.spill();
+        assertTrue(packed.isSpilled());
+        assertEquals(0, packed.getByteSize());
+        assertEquals(pair.contentHash(), packed.unpack().contentHash());
+    }
+
+    @Test
+    public void truncatedDataIsCorrupt() throws Exception {
+        Parameters p = new Parameters();
+        p.put("Seed", 1.0);
+        ImagePair pair = new SimplexNoiseGenerator(null).executeOperation(new ImagePair(64), p);
+        java.io.ByteArrayOutputStream bytes = new java.io.ByteArrayOutputStream();
+        PackedPair.pack(pair).writeTo(new java.io.DataOutputStream(bytes));
+        ByteBuffer whole = ByteBuffer.wrap(bytes.toByteArray());
+
+        // keep the first half of the left half's compressed data
+        int length = whole.getInt(12);
+        ByteBuffer cut = ByteBuffer.allocate(whole.capacity() - length + length / 2);
+        whole.limit(16);
+        cut.put(whole).putInt(12, length / 2);
+        whole.limit(16 + length / 2);
+        cut.put(whole);
+        whole.limit(whole.capacity()).position(16 + length);
+        cut.put(whole).flip();
+
+        PackedPair damaged = PackedPair.read(cut);
+        assertThrows(IllegalStateException.class, damaged::unpack);
+    }
+
+    @Test
+    public void grayPixelsCompressWell() {
+        Parameters p = new Parameters();
+        p.put("Seed", 1.0);
+        ImagePair pair = new SimplexNoiseGenerator(null).executeOperation(new ImagePair(128), p);
+        // the kind of gray ARGB image masks and exports produce
+        pair.setLeft(new PixelBuffer(128, 128, pair.getLeft().getPixels().clone()));
+        PackedPair packed = PackedPair.pack(pair);
+        assertTrue(packed.getPackedSize() * 4 < pair.getByteSize(),
+                packed.getPackedSize() + " vs " + pair.getByteSize());
+    }
+}
@@ -0,0 +1,45 @@
+package com.beder.texture;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PixelBufferTest {
+    @Test
+    public void grayPlanePacksToOpaqueArgb() {
+        PixelBuffer b = PixelBuffer.ofGray(2, 1, new float[] {0f, 1f});
+        assertArrayEquals(new int[] {0xFF000000, 0xFFFFFFFF}, b.getPixels());
+        assertArrayEquals(new byte[] {0, (byte) 255}, b.getGrayBytes());
+    }
+
+    @Test
+    public void imageViewSharesPixels() {
+        PixelBuffer b = PixelBuffer.filled(2, 2, 0xFF000000);
+        BufferedImage img = b.toImage();
+        assertEquals(BufferedImage.TYPE_INT_ARGB, img.getType());
+        img.setRGB(1, 1, 0xFF336699);
+        assertEquals(0xFF336699, b.getPixels()[3]);
+        assertSame(b.getPixels(), PixelBuffer.of(img).getPixels());
+    }
+
+    @Test
+    public void editDropsStaleGrayPlane() {
+        PixelBuffer b = PixelBuffer.ofGray(1, 1, new float[] {0f});
+        b.editPixels()[0] = 0xFFFFFFFF;
+        assertEquals(1f, b.getGray()[0]);
+    }
+
+    @Test
+    public void sharedBuffersCopyOnFirstEdit() {
+        PixelBuffer a = PixelBuffer.filled(2, 2, 0xFF000000);
+        PixelBuffer b = a.share();
+        assertSame(a.getPixels(), b.getPixels());
+
+        b.editPixels()[0] = 0xFFFFFFFF;
+        assertEquals(0xFF000000, a.getPixels()[0]);
+        assertEquals(0xFFFFFFFF, b.getPixels()[0]);
+        assertNotSame(a.getPixels(), b.getPixels());
+    }
+}
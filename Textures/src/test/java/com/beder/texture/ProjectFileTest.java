@@ -0,0 +1,142 @@
+package com.beder.texture;
+
+import com.beder.texture.noise.PerlinNoiseGenerator;
+import com.beder.texture.noise.SimplexNoiseGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProjectFileTest {
+    private static List<Layer> stack(int res) {
+        Layer a = new Layer(new SimplexNoiseGenerator(null));
+        a.getParam().put("Seed", 5.0);
+        Layer b = new Layer(new PerlinNoiseGenerator(null));
+        b.getParam().put("Seed", 9.0);
+        a.apply(new ImagePair(res));
+        b.apply(a.getOutput());
+        return Arrays.asList(a, b);
+    }
+
+    private static File save(List<Layer> layers, int res) throws Exception {
+        File file = File.createTempFile("project", ProjectFile.EXTENSION);
+        file.deleteOnExit();
+        List<PackedPair> outputs = new ArrayList<>();
+        for (Layer l : layers) {
+            outputs.add(PackedPair.pack(l.getOutput()));
+        }
+        ProjectFile.write(file, res, layers, outputs);
+        return file;
+    }
+
+    @Test
+    public void restoresOutputsWithoutApplying() throws Exception {
+        List<Layer> saved = stack(64);
+        File file = save(saved, 64);
+        assertTrue(ProjectFile.isProject(file));
+
+        List<Layer> loaded = ProjectFile.read(file, null, 64);
+        assertEquals(2, loaded.size());
+        for (int i = 0; i < 2; i++) {
+            Layer l = loaded.get(i);
+            assertTrue(l.isApplied());
+            assertTrue(l.isPacked());
+            assertEquals(saved.get(i).getOutput().contentHash(), l.getOutput().contentHash());
+            assertNull(RenderMetrics.getInstance().get(l));
+        }
+        assertFalse(loaded.get(1).needsApply(loaded.get(0).getOutput()));
+    }
+
+    @Test
+    public void staleLayersLoadUnapplied() throws Exception {
+        List<Layer> saved = stack(64);
+        File file = save(saved, 64);
+
+        // a different resolution invalidates everything
+        for (Layer l : ProjectFile.read(file, null, 32)) {
+            assertFalse(l.isApplied());
+        }
+
+        // a changed first layer invalidates the layers after it
+        saved.get(0).getParam().put("Seed", 6.0);
+        saved.get(0).apply(new ImagePair(64));
+        File changed = File.createTempFile("project", ProjectFile.EXTENSION);
+        changed.deleteOnExit();
+        List<PackedPair> outputs = Arrays.asList(PackedPair.pack(saved.get(0).getOutput()),
+                PackedPair.pack(saved.get(1).getOutput()));
+        ProjectFile.write(changed, 64, saved, outputs);
+        List<Layer> loaded = ProjectFile.read(changed, null, 64);
+        assertTrue(loaded.get(0).isApplied());
+        assertFalse(loaded.get(1).isApplied());
+    }
+
+    @Test
+    public void damagedOutputsAreRecomputedWhenFirstUsed() throws Exception {
+        List<Layer> saved = stack(64);
+        long expected = saved.get(1).getOutput().contentHash();
+
+        // stored pixels that do not match the stored hash
+        File file = File.createTempFile("project", ProjectFile.EXTENSION);
+        file.deleteOnExit();
+        ProjectFile.write(file, 64, saved, Arrays.asList(PackedPair.pack(saved.get(0).getOutput()),
+                PackedPair.pack(new ImagePair(64))));
+        assertRecomputed(ProjectFile.read(file, null, 64), expected);
+
+        // a flipped byte in the last layer's compressed data
+        file = save(saved, 64);
+        byte[] bytes = java.nio.file.Files.readAllBytes(file.toPath());
+        bytes[bytes.length - 1] ^= 0x55;
+        java.nio.file.Files.write(file.toPath(), bytes);
+        assertRecomputed(ProjectFile.read(file, null, 64), expected);
+    }
+
+    private static void assertRecomputed(List<Layer> loaded, long expected) {
+        // accepted by key and hash chain, without decompressing anything
+        assertTrue(loaded.get(1).isApplied());
+        assertTrue(loaded.get(1).isPacked());
+        assertNull(loaded.get(1).getOutput());
+        assertTrue(loaded.get(1).isEvicted());
+
+        LayerStack stack = new LayerStack(new TextureGenius(64));
+        stack.load(loaded);
+        try {
+            assertEquals(expected, stack.getOutput(1).contentHash());
+            assertFalse(loaded.get(0).isEvicted());
+        } finally {
+            stack.clear();
+        }
+    }
+
+    @Test
+    public void openProjectCanBeSavedOver() throws Exception {
+        List<Layer> saved = stack(64);
+        File file = save(saved, 64);
+        List<Layer> loaded = ProjectFile.read(file, null, 64);
+
+        // the loaded outputs do not depend on the file any more
+        new java.io.FileOutputStream(file).close();
+        List<PackedPair> outputs = new ArrayList<>();
+        for (Layer l : loaded) {
+            outputs.add(l.getPackedOutput());
+        }
+        ProjectFile.write(file, 64, loaded, outputs);
+        for (int i = 0; i < 2; i++) {
+            assertEquals(saved.get(i).getOutput().contentHash(), loaded.get(i).getOutput().contentHash());
+        }
+        List<Layer> again = ProjectFile.read(file, null, 64);
+        assertTrue(again.get(1).isApplied());
+        assertEquals(saved.get(1).getOutput().contentHash(), again.get(1).getOutput().contentHash());
+    }
+
+    @Test
+    public void plainFileIsNotProject() throws Exception {
+        File file = File.createTempFile("stack", ".json");
+        file.deleteOnExit();
+        java.nio.file.Files.write(file.toPath(), "{\"operations\":[]}".getBytes("UTF-8"));
+        assertFalse(ProjectFile.isProject(file));
+    }
+}
@@ -0,0 +1,50 @@
+package com.beder.texture;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RenderEngineTest {
+    private File writeStack() throws Exception {
+        File f = File.createTempFile("stack", ".json");
+        f.deleteOnExit();
+        try (FileWriter fw = new FileWriter(f)) {
+            fw.write("{\"operations\": ["
+                    + "{\"class\": \"com.beder.texture.noise.SimplexNoiseGenerator\","
+                    + " \"params\": {\"Seed\": 42, \"Scale\": 4}},"
+                    + "{\"class\": \"com.beder.texture.mask.CopyMask\", \"params\": {}}"
+                    + "]}");
+        }
+        return f;
+    }
+
+    @Test
+    public void rendersSavedStackAtAnyResolution() throws Exception {
+        RenderEngine engine = RenderEngine.load(writeStack());
+        assertEquals(2, engine.getLayers().size());
+
+        for (int res : new int[] {8, 16}) {
+            ImagePair out = engine.render(res);
+            assertEquals(res, out.getRes());
+            for (int y = 0; y < res; y++) {
+                for (int x = 0; x < res; x++) {
+                    assertEquals(out.getLeftImage().getRGB(x, y), out.getRightImage().getRGB(x, y));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void renderIsReproducible() throws Exception {
+        ImagePair a = RenderEngine.load(writeStack()).render(8);
+        ImagePair b = RenderEngine.load(writeStack()).render(8);
+        for (int y = 0; y < 8; y++) {
+            for (int x = 0; x < 8; x++) {
+                assertEquals(a.getLeftImage().getRGB(x, y), b.getLeftImage().getRGB(x, y));
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.beder.texture;
+
+import com.beder.texture.noise.PerlinNoiseGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RenderMetricsTest {
+    @Test
+    public void recordsMissThenHit() {
+        Layer layer = new Layer(new PerlinNoiseGenerator(null));
+        Parameters p = new Parameters();
+        p.put("Seed", 11.0);
+        p.put("Frequency", 5.0);
+        layer.setParam(p);
+
+        layer.apply(new ImagePair(128));
+        RenderMetrics.Stats s = RenderMetrics.getInstance().get(layer);
+        assertEquals(1, s.getMisses());
+        assertTrue(s.getLast().wallNanos > 0);
+        assertTrue(s.getExecuted().allocatedBytes >= 128 * 128 * 4, "allocated " + s.getExecuted().allocatedBytes);
+
+        layer.apply(new ImagePair(128));
+        assertEquals(1, s.getHits());
+        assertEquals(2, s.getApplies());
+    }
+
+    @Test
+    public void dumpsLayersInStackOrder() {
+        Layer layer = new Layer(new PerlinNoiseGenerator(null));
+        layer.getParam().put("Seed", 1.0);
+        layer.apply(new ImagePair(32));
+        String json = RenderMetrics.getInstance().toJSON(Collections.singletonList(layer)).toString();
+        assertTrue(json.contains("\"title\":\"Perlin\""), json);
+        assertTrue(json.contains("cacheMisses"), json);
+    }
+}
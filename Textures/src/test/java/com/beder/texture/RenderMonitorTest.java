@@ -0,0 +1,44 @@
+package com.beder.texture;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RenderMonitorTest {
+    @Test
+    public void cancelledMonitorStopsTiles() {
+        RenderMonitor monitor = new RenderMonitor(null);
+        AtomicInteger tiles = new AtomicInteger();
+        assertThrows(CancellationException.class, () -> monitor.call(() -> {
+            TileScheduler.forEachTile(256, 256, 16, (x0, y0, x1, y1) -> {
+                if (tiles.incrementAndGet() == 1) {
+                    monitor.cancel();
+                }
+            });
+            return null;
+        }));
+        assertTrue(tiles.get() < 256, "tiles after cancel: " + tiles.get());
+        assertSame(RenderMonitor.NONE, RenderMonitor.current());
+    }
+
+    @Test
+    public void progressIsScaledToStep() {
+        List<Double> seen = new ArrayList<Double>();
+        RenderMonitor monitor = new RenderMonitor(seen::add);
+        monitor.beginStep(1, 4);
+        monitor.progress(0.5);
+        assertEquals(0.25, seen.get(0), 1e-9);
+        assertEquals(0.375, seen.get(1), 1e-9);
+    }
+
+    @Test
+    public void noneIgnoresCancel() {
+        RenderMonitor.NONE.cancel();
+        assertFalse(RenderMonitor.NONE.isCancelled());
+    }
+}
@@ -0,0 +1,111 @@
+package com.beder.texture;
+
+import com.beder.texture.mask.CopyMask;
+import com.beder.texture.noise.PerlinNoiseGenerator;
+import com.beder.texture.noise.SimplexNoiseGenerator;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SnapshotBudgetTest {
+    /** Room for a single uncompressed 64x64 pair. */
+    private static final long ONE_PAIR = 64 * 64 * 8;
+
+    @Test
+    public void evictedOutputIsRecomputedFromAncestor() {
+        LayerStack stack = buildStack();
+        long expected = stack.getOutput(2).contentHash();
+
+        SnapshotBudget budget = SnapshotBudget.getInstance();
+        long before = budget.getCapacity(), packedBefore = budget.getPackedCapacity();
+        try {
+            budget.setSpillEnabled(false);
+            budget.setPackedCapacity(0);
+            budget.setCapacity(ONE_PAIR);
+            budget.flush();
+            assertTrue(stack.getLayers().get(0).isEvicted() || stack.getLayers().get(1).isEvicted());
+            assertTrue(budget.getSize() <= ONE_PAIR);
+
+            stack.getOutput(0);
+            budget.flush();
+            assertTrue(stack.getLayers().get(2).isEvicted());
+            assertEquals(expected, stack.getOutput(2).contentHash());
+        } finally {
+            budget.setSpillEnabled(true);
+            budget.setCapacity(before);
+            budget.setPackedCapacity(packedBefore);
+            stack.clear();
+        }
+    }
+
+    @Test
+    public void inactiveOutputsArePackedAndSpilled() {
+        LayerStack stack = buildStack();
+        long[] expected = new long[3];
+        for (int i = 0; i < 3; i++) {
+            expected[i] = stack.getOutput(i).contentHash();
+        }
+
+        SnapshotBudget budget = SnapshotBudget.getInstance();
+        long before = budget.getCapacity(), packedBefore = budget.getPackedCapacity();
+        long spills = budget.getSpills();
+        try {
+            budget.setPackedCapacity(Long.MAX_VALUE);
+            budget.setCapacity(ONE_PAIR);
+            budget.flush();
+            assertTrue(stack.getLayers().get(0).isPacked());
+            assertTrue(stack.getLayers().get(1).isPacked());
+
+            budget.setPackedCapacity(0);
+            budget.flush();
+            assertTrue(budget.getSpills() >= spills + 2);
+            for (int i = 0; i < 3; i++) {
+                assertEquals(expected[i], stack.getOutput(i).contentHash());
+                assertFalse(stack.getLayers().get(i).isEvicted());
+            }
+        } finally {
+            budget.setCapacity(before);
+            budget.setPackedCapacity(packedBefore);
+            stack.clear();
+        }
+    }
+
+    @Test
+    public void cacheIsDroppedBeforeLayersArePacked() {
+        LayerCache cache = LayerCache.getInstance();
+        cache.clear();
+        LayerStack stack = buildStack();
+        assertTrue(cache.getSize() > 0);
+
+        SnapshotBudget budget = SnapshotBudget.getInstance();
+        long before = budget.getCapacity();
+        try {
+            // room for the three layer outputs and nothing else
+            budget.setCapacity(budget.getSize());
+            budget.flush();
+            assertEquals(0, cache.getSize());
+            for (Layer l : stack.getLayers()) {
+                assertFalse(l.isPacked());
+                assertFalse(l.isEvicted());
+            }
+        } finally {
+            budget.setCapacity(before);
+            stack.clear();
+        }
+    }
+
+    private static LayerStack buildStack() {
+        LayerStack stack = new LayerStack(new TextureGenius(64));
+        stack.add(layer(new SimplexNoiseGenerator(null), 5));
+        stack.add(layer(new CopyMask(null), 0));
+        stack.add(layer(new PerlinNoiseGenerator(null), 9));
+        stack.recompute();
+        return stack;
+    }
+
+    private static Layer layer(Operation op, double seed) {
+        Layer l = new Layer(op);
+        l.getParam().put("Seed", seed);
+        return l;
+    }
+}
@@ -0,0 +1,49 @@
+package com.beder.texture;
+
+import com.beder.texture.noise.PerlinNoiseGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TileSchedulerTest {
+    @Test
+    public void everyPixelVisitedOnce() {
+        int w = 150, h = 70;
+        AtomicIntegerArray hits = new AtomicIntegerArray(w * h);
+        TileScheduler.forEachTile(w, h, 32, (x0, y0, x1, y1) -> {
+            for (int y = y0; y < y1; y++) {
+                for (int x = x0; x < x1; x++) {
+                    hits.incrementAndGet(y * w + x);
+                }
+            }
+        });
+        for (int i = 0; i < hits.length(); i++) {
+            assertEquals(1, hits.get(i));
+        }
+    }
+
+    @Test
+    public void outputIndependentOfThreadCount() {
+        int before = TileScheduler.getParallelism();
+        try {
+            TileScheduler.setParallelism(1);
+            int[] serial = renderPerlin();
+            TileScheduler.setParallelism(4);
+            int[] parallel = renderPerlin();
+            assertArrayEquals(serial, parallel);
+        } finally {
+            TileScheduler.setParallelism(before);
+        }
+    }
+
+    private int[] renderPerlin() {
+        Parameters p = new Parameters();
+        p.put("Seed", 7.0);
+        p.put("Frequency", 3.0);
+        p.put("Iterations", 5.0);
+        ImagePair out = new PerlinNoiseGenerator(null).executeOperation(new ImagePair(100), p);
+        return out.getLeft().getPixels();
+    }
+}
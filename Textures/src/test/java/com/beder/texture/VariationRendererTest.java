@@ -0,0 +1,56 @@
+package com.beder.texture;
+
+import com.beder.texture.noise.SimplexNoiseGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VariationRendererTest {
+    @Test
+    public void variationsMatchSingleRenders() {
+        SimplexNoiseGenerator op = new SimplexNoiseGenerator(null);
+        Parameters base = op.getDefaultParameters();
+        List<Parameters> variants = VariationRenderer.seeds(base, op.getSeedParameters(), 8, 42);
+        assertEquals(8, variants.size());
+
+        int[] calls = new int[1];
+        List<ImagePair> out = VariationRenderer.render(op, new ImagePair(32), variants, 0.25,
+                (i, img) -> { synchronized (calls) { calls[0]++; } });
+        assertEquals(8, calls[0]);
+        for (int i = 0; i < variants.size(); i++) {
+            Layer single = new Layer(new SimplexNoiseGenerator(null));
+            single.setParam(variants.get(i));
+            assertEquals(single.preview(new ImagePair(32), 0.25).contentHash(), out.get(i).contentHash());
+        }
+        assertNotEquals(out.get(0).contentHash(), out.get(1).contentHash());
+    }
+
+    @Test
+    public void gridRunsAcrossThenDown() {
+        Parameters base = new Parameters();
+        base.put("A", 5.0);
+        base.put("B", 5.0);
+        base.put("C", 1.0);
+        List<Parameters> grid = VariationRenderer.grid(base, "A", 0, 3, 4, "B", 10, 20, 2);
+        assertEquals(8, grid.size());
+        assertEquals(2.0, grid.get(2).get("A", -1));
+        assertEquals(10.0, grid.get(3).get("B", -1));
+        assertEquals(20.0, grid.get(4).get("B", -1));
+        assertEquals(0.0, grid.get(4).get("A", -1));
+        assertEquals(1.0, grid.get(7).get("C", -1));
+        assertEquals(4, VariationRenderer.grid(base, "A", 0, 3, 4, null, 0, 0, 3).size());
+    }
+
+    @Test
+    public void cancelledMonitorStopsRender() {
+        RenderMonitor monitor = new RenderMonitor(null);
+        monitor.cancel();
+        SimplexNoiseGenerator op = new SimplexNoiseGenerator(null);
+        List<Parameters> variants = Collections.singletonList(op.getDefaultParameters());
+        assertThrows(java.util.concurrent.CancellationException.class,
+                () -> monitor.call(() -> VariationRenderer.render(op, new ImagePair(32), variants, 1, null)));
+    }
+}
@@ -0,0 +1,101 @@
+package com.beder.texture.noise;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CellColoringTest {
+    /** Builds the adjacency arrays from an edge list over {@code n} cells. */
+    private static int[][] graph(int n, List<int[]> edges) {
+        int[] start = new int[n + 1];
+        for (int[] e : edges) {
+            start[e[0] + 1]++;
+            start[e[1] + 1]++;
+        }
+        for (int i = 0; i < n; i++) {
+            start[i + 1] += start[i];
+        }
+        int[] fill = start.clone();
+        int[] adjacency = new int[start[n]];
+        for (int[] e : edges) {
+            adjacency[fill[e[0]]++] = e[1];
+            adjacency[fill[e[1]]++] = e[0];
+        }
+        return new int[][] {start, adjacency};
+    }
+
+    private static void assertProper(int[][] g, int[] colors) {
+        int[] start = g[0], adjacency = g[1];
+        for (int v = 0; v < colors.length; v++) {
+            assertTrue(colors[v] >= 0);
+            for (int e = start[v]; e < start[v + 1]; e++) {
+                assertNotEquals(colors[v], colors[adjacency[e]]);
+            }
+        }
+    }
+
+    /** A triangulated grid: planar, with many triangles and degree-6 cells. */
+    private static List<int[]> triangulatedGrid(int w, int h) {
+        List<int[]> edges = new ArrayList<>();
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                int v = y * w + x;
+                if (x + 1 < w) edges.add(new int[] {v, v + 1});
+                if (y + 1 < h) edges.add(new int[] {v, v + w});
+                if (x + 1 < w && y + 1 < h) edges.add(new int[] {v, v + w + 1});
+            }
+        }
+        return edges;
+    }
+
+    @Test
+    public void fourColoursAPlanarTriangulation() {
+        int w = 300, h = 300;
+        int[][] g = graph(w * h, triangulatedGrid(w, h));
+        int[] colors = CellColoring.color(g[0], g[1]);
+        assertProper(g, colors);
+        for (int c : colors) {
+            assertTrue(c < CellColoring.COLORS);
+        }
+    }
+
+    @Test
+    public void oddWheelNeedsAllFourColours() {
+        // an odd rim takes three colours, the hub a fourth
+        List<int[]> edges = new ArrayList<>();
+        int rim = 7;
+        for (int i = 0; i < rim; i++) {
+            edges.add(new int[] {0, 1 + i});
+            edges.add(new int[] {1 + i, 1 + (i + 1) % rim});
+        }
+        int[][] g = graph(rim + 1, edges);
+        int[] colors = CellColoring.color(g[0], g[1]);
+        assertProper(g, colors);
+        for (int c : colors) {
+            assertTrue(c < CellColoring.COLORS);
+        }
+    }
+
+    @Test
+    public void completeGraphGetsExtraColours() {
+        List<int[]> edges = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            for (int j = i + 1; j < 6; j++) {
+                edges.add(new int[] {i, j});
+            }
+        }
+        int[][] g = graph(6, edges);
+        int[] colors = CellColoring.color(g[0], g[1]);
+        assertProper(g, colors);
+    }
+
+    @Test
+    public void isolatedCellsAndEmptyGraph() {
+        int[] colors = CellColoring.color(new int[] {0, 0, 0}, new int[0]);
+        assertArrayEquals(new int[] {0, 0}, colors);
+        assertEquals(0, CellColoring.color(new int[] {0}, new int[0]).length);
+    }
+}
@@ -0,0 +1,68 @@
+package com.beder.texture.noise;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CellDiagramTest {
+    @Test
+    public void adjacencyIncludesPairsAcrossTheSeam() {
+        // three vertical bands: 0 | 1 | 2, where 2 meets 0 only by wrapping
+        int res = 12;
+        int[] labels = new int[res * res];
+        for (int y = 0; y < res; y++) {
+            for (int x = 0; x < res; x++) {
+                labels[y * res + x] = x / 4;
+            }
+        }
+        int[][] g = CellDiagram.adjacency(labels, res, 3);
+        assertArrayEquals(new int[] {0, 2, 4, 6}, g[0]);
+        assertArrayEquals(new int[] {1, 2, 0, 2, 0, 1}, g[1]);
+    }
+
+    @Test
+    public void cellsWithoutPixelsHaveNoNeighbours() {
+        int[] labels = new int[16];
+        int[][] g = CellDiagram.adjacency(labels, 4, 2);
+        assertArrayEquals(new int[] {0, 0, 0}, g[0]);
+        assertEquals(0, g[1].length);
+    }
+
+    @Test
+    public void touchingCellsGetDifferentColours() {
+        Random rnd = new Random(4);
+        int res = 128, n = 400;
+        float[] xs = new float[n], ys = new float[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = rnd.nextFloat() * res;
+            ys[i] = rnd.nextFloat() * res;
+        }
+        int[] labels = CellDiagram.labels(new SiteIndex(xs, ys, res), res);
+        int[] px = CellDiagram.render(xs, ys, res);
+        for (int y = 0; y < res; y++) {
+            for (int x = 0; x < res; x++) {
+                int i = y * res + x;
+                int right = y * res + (x + 1) % res;
+                int down = ((y + 1) % res) * res + x;
+                if (labels[i] != labels[right] && px[i] != 0xFFFFFFFF) {
+                    assertNotEquals(px[i], px[right]);
+                }
+                if (labels[i] != labels[down] && px[i] != 0xFFFFFFFF) {
+                    assertNotEquals(px[i], px[down]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void generatorsAreDeterministic() {
+        long a = VoronoiNoiseGenerator.generateVoronoi(64, 30, new Random(1)).contentHash();
+        long b = VoronoiNoiseGenerator.generateVoronoi(64, 30, new Random(1)).contentHash();
+        assertEquals(a, b);
+        long c = CellNoiseGenerator.generateCellNoise(64, 6, 0.4, new Random(2)).contentHash();
+        long d = CellNoiseGenerator.generateCellNoise(64, 6, 0.4, new Random(2)).contentHash();
+        assertEquals(c, d);
+    }
+}
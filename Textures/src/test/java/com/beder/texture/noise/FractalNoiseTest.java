@@ -0,0 +1,65 @@
+package com.beder.texture.noise;
+
+import com.beder.texture.ImagePair;
+import com.beder.texture.Parameters;
+import com.beder.texture.PixelBuffer;
+import com.beder.texture.TileScheduler;
+import com.beder.util.OpenSimplex2S;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FractalNoiseTest {
+    @Test
+    public void singleOctaveIsPlainSimplex() {
+        SimplexNoiseGenerator op = new SimplexNoiseGenerator(null);
+        Parameters p = op.getDefaultParameters();
+        p.put("Seed", 5.0);
+        p.put("Scale", 30.0);
+        float[] g = op.executeOperation(new ImagePair(64), p).getLeft().getGray();
+        for (int y = 0; y < 64; y++) {
+            for (int x = 0; x < 64; x++) {
+                double val = OpenSimplex2S.noise2(5, x / 30.0, y / 30.0);
+                assertEquals((float) ((val + 1) / 2.0), g[y * 64 + x]);
+            }
+        }
+    }
+
+    @Test
+    public void octavesAddDetailWithinRange() {
+        SimplexNoiseGenerator op = new SimplexNoiseGenerator(null);
+        Parameters p = op.getDefaultParameters();
+        p.put("Seed", 5.0);
+        p.put("Octaves", 5.0);
+        long fbm = op.executeOperation(new ImagePair(64), p).contentHash();
+        for (String mode : new String[] {FractalNoise.PARAM_RIDGED, FractalNoise.PARAM_TURBULENCE}) {
+            Parameters q = new Parameters();
+            q.putAll(p);
+            q.put(mode, 1.0);
+            PixelBuffer out = op.executeOperation(new ImagePair(64), q).getLeft();
+            assertNotEquals(fbm, out.contentHash());
+            for (float v : out.getGray()) {
+                assertTrue(v >= 0 && v <= 1, mode + " " + v);
+            }
+        }
+    }
+
+    @Test
+    public void resultDoesNotDependOnThreads() {
+        int before = TileScheduler.getParallelism();
+        PerlinNoiseGenerator op = new PerlinNoiseGenerator(null);
+        Parameters p = op.getDefaultParameters();
+        p.put("Seed", 9.0);
+        p.put(FractalNoise.PARAM_GAIN, 0.6);
+        p.put(FractalNoise.PARAM_LACUNARITY, 2.5);
+        try {
+            TileScheduler.setParallelism(1);
+            long serial = op.executeOperation(new ImagePair(128), p).contentHash();
+            TileScheduler.setParallelism(8);
+            assertEquals(16, FractalNoise.tileSize(128));
+            assertEquals(serial, op.executeOperation(new ImagePair(128), p).contentHash());
+        } finally {
+            TileScheduler.setParallelism(before);
+        }
+    }
+}
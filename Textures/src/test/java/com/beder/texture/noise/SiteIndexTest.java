@@ -0,0 +1,85 @@
+package com.beder.texture.noise;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SiteIndexTest {
+    private static double dist2(float sx, float sy, float px, float py, int size) {
+        double dx = Math.abs(sx - px);
+        if (dx > size / 2.0) dx = size - dx;
+        double dy = Math.abs(sy - py);
+        if (dy > size / 2.0) dy = size - dy;
+        return dx * dx + dy * dy;
+    }
+
+    /** Checks every pixel against a scan of all sites. */
+    private static void checkAgainstBruteForce(float[] xs, float[] ys, int size) {
+        SiteIndex index = new SiteIndex(xs, ys, size);
+        SiteIndex.Hit hit = new SiteIndex.Hit();
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                double b1 = Double.POSITIVE_INFINITY, b2 = Double.POSITIVE_INFINITY;
+                for (int i = 0; i < xs.length; i++) {
+                    double d = dist2(xs[i], ys[i], x, y, size);
+                    if (d < b1) {
+                        b2 = b1;
+                        b1 = d;
+                    } else if (d < b2) {
+                        b2 = d;
+                    }
+                }
+                index.nearest2(x, y, hit);
+                assertEquals(b1, hit.firstDist2, 0);
+                assertEquals(b2, hit.secondDist2, 0);
+                assertEquals(b1, dist2(xs[hit.first], ys[hit.first], x, y, size), 0);
+                assertEquals(b1, dist2(xs[index.nearest(x, y)], ys[index.nearest(x, y)], x, y, size), 0);
+            }
+        }
+    }
+
+    @Test
+    public void matchesBruteForceForUniformSites() {
+        Random rnd = new Random(3);
+        for (int n : new int[] {2, 7, 50, 800}) {
+            float[] xs = new float[n], ys = new float[n];
+            for (int i = 0; i < n; i++) {
+                xs[i] = rnd.nextFloat() * 64;
+                ys[i] = rnd.nextFloat() * 64;
+            }
+            checkAgainstBruteForce(xs, ys, 64);
+        }
+    }
+
+    @Test
+    public void matchesBruteForceForClusteredAndOutOfRangeSites() {
+        Random rnd = new Random(9);
+        int n = 300;
+        float[] xs = new float[n], ys = new float[n];
+        for (int i = 0; i < n; i++) {
+            // a tight clump straddling the corner, leaving most cells empty
+            xs[i] = (float) (rnd.nextGaussian() * 4);
+            ys[i] = (float) (rnd.nextGaussian() * 4);
+        }
+        checkAgainstBruteForce(xs, ys, 64);
+    }
+
+    @Test
+    public void singleSite() {
+        SiteIndex index = new SiteIndex(new float[] {10.5f}, new float[] {3.5f}, 32);
+        SiteIndex.Hit hit = new SiteIndex.Hit();
+        index.nearest2(30, 30, hit);
+        assertEquals(0, hit.first);
+        assertEquals(-1, hit.second);
+        assertEquals(0, index.nearest(0, 0));
+    }
+
+    @Test
+    public void distancesWrapAcrossTheSeam() {
+        SiteIndex index = new SiteIndex(new float[] {1, 40}, new float[] {1, 40}, 100);
+        // (99, 99) is 2 pixels from (1, 1) going round the torus
+        assertEquals(0, index.nearest(99, 99));
+    }
+}
@@ -0,0 +1,127 @@
+package com.beder.texture.noise;
+
+import java.util.Random;
+
+import com.beder.texture.TileScheduler;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VegetationAutomatonTest {
+    private static float[] fertility(int res, long seed) {
+        Random rnd = new Random(seed);
+        float[] f = new float[res * res];
+        for (int i = 0; i < f.length; i++) {
+            f[i] = rnd.nextFloat();
+        }
+        return f;
+    }
+
+    /** The rules cell by cell on an int grid, with the same random numbers. */
+    private static byte[] reference(int res, float[] fert, double growth, double death, long seed,
+                                    int seeds, int cycles) {
+        int[] cur = new int[res * res], nxt = new int[res * res];
+        Random rand = new Random(seed);
+        for (int i = 0; i < seeds; i++) {
+            int x = rand.nextInt(res);
+            int y = rand.nextInt(res);
+            cur[y * res + x] = 1;
+        }
+        for (int c = 0; c < cycles; c++) {
+            for (int y = 0; y < res; y++) {
+                for (int x = 0; x < res; x++) {
+                    int n = 0;
+                    for (int dy = -1; dy <= 1; dy++) {
+                        for (int dx = -1; dx <= 1; dx++) {
+                            if (dx != 0 || dy != 0) {
+                                n += cur[(y + dy + res) % res * res + (x + dx + res) % res];
+                            }
+                        }
+                    }
+                    double f = fert[y * res + x];
+                    double u = VegetationAutomaton.random(seed, c, x, y);
+                    boolean live = cur[y * res + x] == 1
+                            ? u < 1 - death * (1 - f)
+                            : n > 0 && u < f * growth;
+                    nxt[y * res + x] = live ? 1 : 0;
+                }
+            }
+            int[] t = cur;
+            cur = nxt;
+            nxt = t;
+        }
+        byte[] out = new byte[res * res];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = (byte) (cur[i] == 1 ? 255 : 0);
+        }
+        return out;
+    }
+
+    private static byte[] run(int res, float[] fert, double growth, double death, long seed,
+                              int seeds, int cycles) {
+        VegetationAutomaton a = new VegetationAutomaton(res, fert, growth, death, seed);
+        a.plant(new Random(seed), seeds);
+        for (int c = 0; c < cycles; c++) {
+            a.step();
+        }
+        assertEquals(cycles, a.getCycle());
+        return a.toGray();
+    }
+
+    @Test
+    public void matchesCellByCellRulesIncludingTheWrap() {
+        // 100 leaves a partly used last word; 64 and 130 check whole words
+        for (int res : new int[] {100, 64, 130, 5}) {
+            float[] f = fertility(res, res);
+            assertArrayEquals(reference(res, f, 0.6, 0.3, 11, 20, 25),
+                    run(res, f, 0.6, 0.3, 11, 20, 25), "res " + res);
+        }
+    }
+
+    @Test
+    public void outputIndependentOfThreadCount() {
+        int before = TileScheduler.getParallelism();
+        float[] f = fertility(200, 1);
+        try {
+            TileScheduler.setParallelism(1);
+            byte[] serial = run(200, f, 0.5, 0.2, 3, 50, 30);
+            TileScheduler.setParallelism(4);
+            byte[] parallel = run(200, f, 0.5, 0.2, 3, 50, 30);
+            assertArrayEquals(serial, parallel);
+        } finally {
+            TileScheduler.setParallelism(before);
+        }
+    }
+
+    @Test
+    public void barrenGroundNeitherGrowsNorDiesWithoutDeathRate() {
+        float[] f = new float[64 * 64];
+        byte[] start = run(64, f, 1, 0, 5, 30, 0);
+        assertArrayEquals(start, run(64, f, 1, 0, 5, 30, 40));
+    }
+
+    @Test
+    public void sparseStartMatchesTheRules() {
+        int res = 640;
+        float[] f = fertility(res, 8);
+        VegetationAutomaton a = new VegetationAutomaton(res, f, 0.7, 0.1, 21);
+        a.plant(new Random(21), 3);
+        a.step();
+        assertFalse(a.wasDense());
+        assertArrayEquals(reference(res, f, 0.7, 0.1, 21, 3, 40), run(res, f, 0.7, 0.1, 21, 3, 40));
+    }
+
+    @Test
+    public void switchesBackToBlocksWhenLifeThinsOut() {
+        int res = 256;
+        float[] f = new float[res * res];
+        VegetationAutomaton a = new VegetationAutomaton(res, f, 1, 1, 2);
+        a.plant(new Random(2), 5000);
+        a.step();
+        // barren ground and certain death: everything dies in the first cycle
+        assertTrue(a.wasDense());
+        a.step();
+        assertFalse(a.wasDense());
+        assertArrayEquals(new byte[res * res], a.toGray());
+    }
+}
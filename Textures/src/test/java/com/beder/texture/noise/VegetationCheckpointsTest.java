@@ -0,0 +1,74 @@
+package com.beder.texture.noise;
+
+import java.util.Random;
+
+import com.beder.texture.ImagePair;
+import com.beder.texture.Parameters;
+import com.beder.texture.PixelBuffer;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VegetationCheckpointsTest {
+    private static ImagePair fertile(int res) {
+        Random rnd = new Random(1);
+        float[] f = new float[res * res];
+        for (int i = 0; i < f.length; i++) {
+            f[i] = 0.3f + 0.7f * rnd.nextFloat();
+        }
+        return new ImagePair(PixelBuffer.ofGray(res, res, f), PixelBuffer.ofGray(res, res, new float[res * res]));
+    }
+
+    private static long render(VegetationNoiseGenerator op, int iterations) {
+        Parameters p = op.getDefaultParameters();
+        p.put("Seed", 4.0);
+        p.put("Seeds", 10.0);
+        p.put("Iterations", (double) iterations);
+        return op.executeOperation(fertile(96), p).contentHash();
+    }
+
+    @Test
+    public void resumedRunsMatchFreshRuns() {
+        VegetationNoiseGenerator op = new VegetationNoiseGenerator(null);
+        render(op, 30);
+        // more iterations continue from 30, fewer from a checkpoint before
+        for (int it : new int[] {45, 20, 45, 3, 100}) {
+            assertEquals(render(new VegetationNoiseGenerator(null), it), render(op, it), "iterations " + it);
+        }
+    }
+
+    @Test
+    public void keepsLatestAndSpreadsTheRest() {
+        VegetationCheckpoints cp = new VegetationCheckpoints();
+        VegetationAutomaton a = new VegetationAutomaton(64, new float[64 * 64], 0, 0, 1);
+        for (int c = 1; c <= 40; c++) {
+            a.step();
+            cp.put("run", a.snapshot());
+        }
+        assertEquals(VegetationCheckpoints.MAX_PER_RUN, cp.size("run"));
+        assertEquals(40, cp.latest("run", 1000).cycle);
+        assertNull(cp.latest("run", 0));
+        // no two survivors are right next to each other
+        int prev = -10;
+        for (int c = 1; c <= 40; c++) {
+            VegetationAutomaton.State s = cp.latest("run", c);
+            if (s != null && s.cycle == c) {
+                assertTrue(c - prev > 1);
+                prev = c;
+            }
+        }
+    }
+
+    @Test
+    public void keepsTwoRuns() {
+        VegetationCheckpoints cp = new VegetationCheckpoints();
+        VegetationAutomaton a = new VegetationAutomaton(16, new float[16 * 16], 0, 0, 1);
+        a.step();
+        cp.put("a", a.snapshot());
+        cp.put("b", a.snapshot());
+        cp.put("c", a.snapshot());
+        assertEquals(0, cp.size("a"));
+        assertEquals(1, cp.size("b"));
+        assertEquals(1, cp.size("c"));
+    }
+}
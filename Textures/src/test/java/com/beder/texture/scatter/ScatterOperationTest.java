@@ -0,0 +1,64 @@
+package com.beder.texture.scatter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ScatterOperationTest {
+    /** Pixel by pixel with modulo wrapping, as the compositing used to index. */
+    private static void reference(int[] canvas, int res, int[] src, int w, int h, int x0, int y0) {
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                int argb = src[y * w + x];
+                if (argb >>> 24 == 0) continue;
+                int dx = Math.floorMod(x0 + x, res);
+                int dy = Math.floorMod(y0 + y, res);
+                canvas[dy * res + dx] = argb >>> 24 == 255 ? argb : ScatterOperation.over(argb, canvas[dy * res + dx]);
+            }
+        }
+    }
+
+    @Test
+    public void wrapsLikePerPixelModulo() {
+        Random rnd = new Random(5);
+        int res = 40;
+        for (int trial = 0; trial < 50; trial++) {
+            int w = 1 + rnd.nextInt(60), h = 1 + rnd.nextInt(60);
+            int[] src = new int[w * h];
+            for (int i = 0; i < src.length; i++) {
+                src[i] = rnd.nextInt(3) == 0 ? 0 : rnd.nextInt() | 0xFF000000;
+            }
+            int x0 = rnd.nextInt(3 * res) - res, y0 = rnd.nextInt(3 * res) - res;
+            int[] expected = new int[res * res], actual = new int[res * res];
+            reference(expected, res, src, w, h, x0, y0);
+            ScatterOperation.composite(actual, res, src, w, h, x0, y0, false);
+            assertArrayEquals(expected, actual);
+        }
+    }
+
+    @Test
+    public void blendsSourceOver() {
+        // opaque and transparent sources replace and keep
+        assertEquals(0xFF102030, ScatterOperation.over(0xFF102030, 0xFFFFFFFF));
+        assertEquals(0, ScatterOperation.over(0, 0));
+        // over nothing the source is kept as it is
+        assertEquals(0x80FF0000, ScatterOperation.over(0x80FF0000, 0));
+        // half red over opaque blue
+        int c = ScatterOperation.over(0x80FF0000, 0xFF0000FF);
+        assertEquals(0xFF, c >>> 24);
+        assertEquals(0x80, (c >> 16) & 0xFF);
+        assertEquals(0x7F, c & 0xFF);
+    }
+
+    @Test
+    public void whiteUsesOnlyAlpha() {
+        int[] canvas = {0xFF000000, 0xFF000000};
+        ScatterOperation.composite(canvas, 1, new int[] {0xFF123456}, 1, 1, 0, 0, true);
+        assertEquals(0xFFFFFFFF, canvas[0]);
+        int[] gray = {0xFF000000};
+        ScatterOperation.composite(gray, 1, new int[] {0x80123456}, 1, 1, 3, -2, true);
+        assertEquals(0xFF808080, gray[0]);
+    }
+}
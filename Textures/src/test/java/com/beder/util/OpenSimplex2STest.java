@@ -0,0 +1,37 @@
+package com.beder.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OpenSimplex2STest {
+    @Test
+    public void regionMatchesNoise2() {
+        double[] scales = {0.7, 3, 17.5, 200};
+        long[] seeds = {0, 42, -7_123_456_789L};
+        for (double scale : scales) {
+            for (long seed : seeds) {
+                int w = 53, h = 37, x0 = -20, y0 = -11, off = 5, stride = 60;
+                float[] out = new float[off + h * stride];
+                OpenSimplex2S.noise2Region(seed, x0, y0, w, h, scale, out, off, stride);
+                for (int j = 0; j < h; j++) {
+                    for (int i = 0; i < w; i++) {
+                        float expected = OpenSimplex2S.noise2(seed, (x0 + i) / scale, (y0 + j) / scale);
+                        assertEquals(Float.floatToRawIntBits(expected),
+                                Float.floatToRawIntBits(out[off + j * stride + i]),
+                                "scale " + scale + " seed " + seed + " at " + i + "," + j);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void rowMatchesNoise2() {
+        float[] out = new float[1000];
+        OpenSimplex2S.noise2Row(99, 123, 456, out.length, 40, out, 0);
+        for (int i = 0; i < out.length; i++) {
+            assertEquals(OpenSimplex2S.noise2(99, (123 + i) / 40.0, 456 / 40.0), out[i]);
+        }
+    }
+}
@@ -17,8 +17,8 @@ public class ExportImageTest {
         TextureGenius genius = new TextureGenius(4);
         TextureGUI gui = new TextureGUI(genius);
         ImagePair pair = genius.getCurrentImage();
-        pair.left.setRGB(0, 0, 0xFF00FF00);
-        pair.right.setRGB(0, 0, 0xFFFF0000);
+        pair.getLeftImage().setRGB(0, 0, 0xFF00FF00);
+        pair.getRightImage().setRGB(0, 0, 0xFFFF0000);
 
         File base = File.createTempFile("tex", ".png");
         base.deleteOnExit();
@@ -45,6 +45,6 @@ public class ScatterAOTest {
         ImagePair pair = new ImagePair(16);
         op.executeOperation(pair, p);
 
-        assertNotNull(pair.left);
+        assertNotNull(pair.getLeft());
     }
 }